@@ -0,0 +1,108 @@
+package histogram.benchmarks;
+
+import histogram.EqualizationStrategy;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptionException;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Entry point of benchmarks.jar. Takes the usual JMH command line options, always attaches
+ * the GC profiler (allocation rate), and after the run prints megapixels per second and the
+ * scaling efficiency of each thread count relative to the 1-thread run of the same configuration.
+ * Without an explicit benchmark pattern it runs EqualizationBenchmark and FixedThreadEqualizationBenchmark.
+ */
+public final class BenchmarkMain {
+
+    private BenchmarkMain() {
+    }
+
+    public static void main(String[] args) throws RunnerException, CommandLineOptionException, IOException {
+        CommandLineOptions commandLine = new CommandLineOptions(args);
+        if (commandLine.shouldHelp() || commandLine.shouldList() || commandLine.shouldListWithParams()
+                || commandLine.shouldListProfilers() || commandLine.shouldListResultFormats()) {
+            Main.main(args); // -h, -l, -lp, -lprof, -lrf: nothing to run, plain JMH handles them
+            return;
+        }
+        ChainedOptionsBuilder options = new OptionsBuilder()
+                .parent(commandLine)
+                .addProfiler(GCProfiler.class);
+        if (commandLine.getIncludes().isEmpty()) {
+            // Includes are regexes: anchored on the dots so PerFrameEqualizationBenchmark doesn't match too.
+            options.include("\\." + EqualizationBenchmark.class.getSimpleName() + "\\.");
+            options.include("\\." + FixedThreadEqualizationBenchmark.class.getSimpleName() + "\\.");
+        }
+        Collection<RunResult> results = new Runner(options.build()).run();
+        printScaling(results);
+    }
+
+    /**
+     * Prints MP/s per configuration and efficiency = throughput(n) / (n * throughput(1)).
+     */
+    static void printScaling(Collection<RunResult> results) {
+        Map<String, Double> singleThreaded = new HashMap<>();
+        List<RunResult> threaded = new ArrayList<>();
+        for (RunResult result : results) {
+            BenchmarkParams params = result.getParams();
+            if (params.getParam("threads") == null || megapixelsPerSecond(result) < 0) {
+                continue;
+            }
+            threaded.add(result);
+            if (Integer.parseInt(params.getParam("threads")) == 1) {
+                singleThreaded.put(configuration(params), megapixelsPerSecond(result));
+            }
+        }
+        if (threaded.isEmpty()) {
+            return;
+        }
+
+        System.out.println();
+        System.out.println("Throughput and scaling efficiency");
+        System.out.printf("%-72s %8s %12s %11s%n", "configuration", "threads", "MP/s", "efficiency");
+        for (RunResult result : threaded) {
+            BenchmarkParams params = result.getParams();
+            int threads = Integer.parseInt(params.getParam("threads"));
+            double throughput = megapixelsPerSecond(result);
+            Double baseline = singleThreaded.get(configuration(params));
+            String strategyName = params.getParam("strategy");
+            boolean threadCountMatters = strategyName == null
+                    || EqualizationStrategy.valueOf(strategyName).usesThreadCount();
+            String efficiency = (baseline == null || !threadCountMatters)
+                    ? "-"
+                    : String.format("%.0f%%", 100.0 * throughput / (threads * baseline));
+            System.out.printf("%-72s %8d %12.1f %11s%n", configuration(params), threads, throughput, efficiency);
+        }
+    }
+
+    // Every parameter except the thread count, so runs that differ only in threads line up.
+    private static String configuration(BenchmarkParams params) {
+        String benchmark = params.getBenchmark();
+        // "histogram.benchmarks.EqualizationBenchmark.equalize" -> "EqualizationBenchmark.equalize"
+        int classStart = benchmark.lastIndexOf('.', benchmark.lastIndexOf('.') - 1) + 1;
+        StringBuilder key = new StringBuilder(benchmark.substring(classStart));
+        for (String name : params.getParamsKeys()) {
+            if (!name.equals("threads")) {
+                key.append(' ').append(name).append('=').append(params.getParam(name));
+            }
+        }
+        return key.toString();
+    }
+
+    private static double megapixelsPerSecond(RunResult result) {
+        Result<?> megapixels = result.getSecondaryResults().get("megapixels");
+        return megapixels == null ? -1 : megapixels.getScore();
+    }
+}
@@ -0,0 +1,94 @@
+package histogram.benchmarks;
+
+import histogram.ClaheEqualizer;
+import histogram.ForkJoinEqualizer;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * CLAHE throughput next to the global fork/join equalizer on the same pool size,
+ * to check that tiled CLAHE stays within about 2x of global equalization on 4K images.
+ * The sliding-window variant is much slower by design and only runs on a small image by default.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class ClaheBenchmark {
+
+    @Param({"3840x2160"})
+    public String size;
+
+    @Param({"512x512"})
+    public String slidingSize;
+
+    @Param
+    public PixelDistribution distribution;
+
+    @Param({"1", "4", "8", "32"})
+    public int threads;
+
+    @Param({"8"})
+    public int tiles;
+
+    @Param({"63"})
+    public int windowSize;
+
+    private BufferedImage image;
+    private BufferedImage slidingImage;
+    private double megapixelsPerImage;
+    private double megapixelsPerSlidingImage;
+    private ForkJoinEqualizer global;
+    private ClaheEqualizer clahe;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int[] dimensions = SyntheticImages.parseSize(size);
+        image = SyntheticImages.create(dimensions[0], dimensions[1], distribution);
+        megapixelsPerImage = dimensions[0] * (double) dimensions[1] / 1_000_000.0;
+        int[] slidingDimensions = SyntheticImages.parseSize(slidingSize);
+        slidingImage = SyntheticImages.create(slidingDimensions[0], slidingDimensions[1], distribution);
+        megapixelsPerSlidingImage = slidingDimensions[0] * (double) slidingDimensions[1] / 1_000_000.0;
+        global = new ForkJoinEqualizer(threads);
+        clahe = new ClaheEqualizer(threads, tiles, tiles, 2.0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        global.shutdown();
+        clahe.shutdown();
+    }
+
+    @Benchmark
+    public BufferedImage globalForkJoin(EqualizationBenchmark.PixelCounter counter) {
+        counter.megapixels += megapixelsPerImage;
+        return global.equalize(image);
+    }
+
+    @Benchmark
+    public BufferedImage claheTiled(EqualizationBenchmark.PixelCounter counter) {
+        counter.megapixels += megapixelsPerImage;
+        return clahe.equalize(image);
+    }
+
+    @Benchmark
+    public BufferedImage claheSlidingWindow(EqualizationBenchmark.PixelCounter counter) {
+        counter.megapixels += megapixelsPerSlidingImage;
+        return clahe.equalizeSlidingWindow(slidingImage, windowSize);
+    }
+}
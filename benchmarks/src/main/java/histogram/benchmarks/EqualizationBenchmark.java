@@ -0,0 +1,80 @@
+package histogram.benchmarks;
+
+import histogram.EqualizationStrategy;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of the strategies whose work is split across a thread count, over image size,
+ * pixel distribution and thread count. Strategies that ignore the thread count are measured
+ * once per configuration by FixedThreadEqualizationBenchmark instead.
+ * Besides ops/s, the "megapixels" counter reports megapixels per second.
+ * The full matrix is large; narrow it with -p, e.g. -p strategy=FORK_JOIN -p size=3840x2160.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+public class EqualizationBenchmark {
+
+    @Param({"SHARED_ATOMIC", "SHARED_STRIPED", "SHARED_BATCHED", "SUB_HISTOGRAM", "FORK_JOIN", "CLAHE"})
+    public EqualizationStrategy strategy;
+
+    @Param({"256x256", "1920x1080", "3840x2160", "7680x4320", "8192x8192"})
+    public String size;
+
+    @Param
+    public PixelDistribution distribution;
+
+    @Param({"1", "2", "4", "8", "16", "32"})
+    public int threads;
+
+    private BufferedImage image;
+    private double megapixelsPerImage;
+
+    /**
+     * Counts processed megapixels; JMH reports it as a rate, i.e. MP/s.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class PixelCounter {
+        public double megapixels;
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            megapixels = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void createImage() {
+        if (!strategy.usesThreadCount()) {
+            throw new IllegalArgumentException(strategy + " ignores the thread count; it belongs in FixedThreadEqualizationBenchmark");
+        }
+        int[] dimensions = SyntheticImages.parseSize(size);
+        image = SyntheticImages.create(dimensions[0], dimensions[1], distribution);
+        megapixelsPerImage = dimensions[0] * (double) dimensions[1] / 1_000_000.0;
+    }
+
+    @Benchmark
+    public BufferedImage equalize(PixelCounter counter) throws InterruptedException {
+        BufferedImage result = strategy.equalize(image, threads);
+        counter.megapixels += megapixelsPerImage;
+        return result;
+    }
+}
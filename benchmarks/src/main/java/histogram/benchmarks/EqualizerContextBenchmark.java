@@ -0,0 +1,84 @@
+package histogram.benchmarks;
+
+import histogram.EqualizerContext;
+import histogram.HistogramEqualizer;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Sub-histogram equalization as a fresh call (new threads, histograms, tables and output image
+ * every time) next to a reused EqualizerContext. Compare gc.alloc.rate.norm, the bytes
+ * allocated per image. Each call gets a different image object, like a service decoding every
+ * request into a new image, so the context's per-image view is part of what is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class EqualizerContextBenchmark {
+
+    @Param({"1920x1080", "3840x2160"})
+    public String size;
+
+    @Param({"UNIFORM"})
+    public PixelDistribution distribution;
+
+    @Param({"1", "4", "8", "32"})
+    public int threads;
+
+    private static final int DISTINCT_IMAGES = 4; // Same size and content, different objects
+
+    private BufferedImage[] images;
+    private int nextImage;
+    private double megapixelsPerImage;
+    private EqualizerContext context;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int[] dimensions = SyntheticImages.parseSize(size);
+        images = new BufferedImage[DISTINCT_IMAGES];
+        for (int i = 0; i < DISTINCT_IMAGES; i++) {
+            images[i] = SyntheticImages.create(dimensions[0], dimensions[1], distribution);
+        }
+        megapixelsPerImage = dimensions[0] * (double) dimensions[1] / 1_000_000.0;
+        context = new EqualizerContext(threads);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public BufferedImage subHistograms(EqualizationBenchmark.PixelCounter counter) throws InterruptedException {
+        counter.megapixels += megapixelsPerImage;
+        return HistogramEqualizer.equalizeMultiThreadSubHistograms(nextImage(), threads);
+    }
+
+    @Benchmark
+    public BufferedImage reusedContext(EqualizationBenchmark.PixelCounter counter) {
+        counter.megapixels += megapixelsPerImage;
+        return context.equalize(nextImage());
+    }
+
+    private BufferedImage nextImage() {
+        BufferedImage image = images[nextImage];
+        nextImage = (nextImage + 1) % DISTINCT_IMAGES;
+        return image;
+    }
+}
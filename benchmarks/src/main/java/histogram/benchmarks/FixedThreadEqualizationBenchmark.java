@@ -0,0 +1,60 @@
+package histogram.benchmarks;
+
+import histogram.EqualizationStrategy;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of the strategies that ignore the thread count (single-threaded or one thread per
+ * channel), so each configuration runs once instead of once per thread count.
+ * The parameter is called fixedStrategy so that -p strategy=... only narrows EqualizationBenchmark.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms6g", "-Xmx6g"})
+public class FixedThreadEqualizationBenchmark {
+
+    @Param({"SINGLE", "CHANNEL", "CHANNEL_LOCK_FREE", "RASTER"})
+    public EqualizationStrategy fixedStrategy;
+
+    @Param({"256x256", "1920x1080", "3840x2160", "7680x4320", "8192x8192"})
+    public String size;
+
+    @Param
+    public PixelDistribution distribution;
+
+    private BufferedImage image;
+    private double megapixelsPerImage;
+
+    @Setup(Level.Trial)
+    public void createImage() {
+        if (fixedStrategy.usesThreadCount()) {
+            throw new IllegalArgumentException(fixedStrategy + " uses the thread count; it belongs in EqualizationBenchmark");
+        }
+        int[] dimensions = SyntheticImages.parseSize(size);
+        image = SyntheticImages.create(dimensions[0], dimensions[1], distribution);
+        megapixelsPerImage = dimensions[0] * (double) dimensions[1] / 1_000_000.0;
+    }
+
+    @Benchmark
+    public BufferedImage equalize(EqualizationBenchmark.PixelCounter counter) throws InterruptedException {
+        BufferedImage result = fixedStrategy.equalize(image, 1);
+        counter.megapixels += megapixelsPerImage;
+        return result;
+    }
+}
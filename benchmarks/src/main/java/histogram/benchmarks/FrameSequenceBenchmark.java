@@ -0,0 +1,89 @@
+package histogram.benchmarks;
+
+import histogram.FrameSequenceEqualizer;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Per-frame cost of equalizing a synthetic video sequence with a FrameSequenceEqualizer,
+ * in DECAY or WINDOW mode with the given sample step and table rebuild threshold.
+ * PerFrameEqualizationBenchmark has the from-scratch baselines on the same frames.
+ * The "frames" counter is frames per second, "tableRebuilds" how many of those needed new tables.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class FrameSequenceBenchmark {
+
+    public enum Mode { DECAY, WINDOW }
+
+    @Param({"DECAY", "WINDOW"})
+    public Mode mode;
+
+    @Param({"1920x1080"})
+    public String size;
+
+    @Param({"1", "4"})
+    public int sampleStep;
+
+    @Param({"0", "0.02"})
+    public double rebuildThreshold;
+
+    static final int FRAMES = 32;
+
+    private BufferedImage[] frames;
+    private FrameSequenceEqualizer sequenceEqualizer;
+    private int nextFrame;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class FrameCounter {
+        public long frames;
+        public long tableRebuilds;
+
+        @Setup(Level.Iteration)
+        public void clear() {
+            frames = 0;
+            tableRebuilds = 0;
+        }
+    }
+
+    @Setup(Level.Trial)
+    public void createFrames() {
+        int[] dimensions = SyntheticImages.parseSize(size);
+        frames = SyntheticImages.createSequence(dimensions[0], dimensions[1], FRAMES);
+        if (mode == Mode.DECAY) {
+            sequenceEqualizer = FrameSequenceEqualizer.withDecay(0.1, rebuildThreshold, sampleStep);
+        } else {
+            sequenceEqualizer = FrameSequenceEqualizer.withWindow(8, rebuildThreshold, sampleStep);
+        }
+    }
+
+    @Benchmark
+    public BufferedImage equalizeFrame(FrameCounter counter) {
+        BufferedImage frame = frames[nextFrame];
+        nextFrame = (nextFrame + 1) % FRAMES;
+        counter.frames++;
+        BufferedImage result = sequenceEqualizer.equalize(frame);
+        if (!sequenceEqualizer.lastFrameReusedTables()) {
+            counter.tableRebuilds++;
+        }
+        return result;
+    }
+}
@@ -0,0 +1,64 @@
+package histogram.benchmarks;
+
+import histogram.HistogramEqualizer;
+import histogram.RasterEqualizer;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Baselines for FrameSequenceBenchmark: the same synthetic frames, each equalized from scratch.
+ * Kept separate because they ignore the sample step and rebuild threshold, and would otherwise
+ * run once for every combination of them.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms2g", "-Xmx2g"})
+public class PerFrameEqualizationBenchmark {
+
+    @Param({"1920x1080"})
+    public String size;
+
+    private BufferedImage[] frames;
+    private int nextFrame;
+
+    @Setup(Level.Trial)
+    public void createFrames() {
+        int[] dimensions = SyntheticImages.parseSize(size);
+        frames = SyntheticImages.createSequence(dimensions[0], dimensions[1], FrameSequenceBenchmark.FRAMES);
+    }
+
+    @Benchmark
+    public BufferedImage singleThread(FrameSequenceBenchmark.FrameCounter counter) {
+        counter.frames++;
+        counter.tableRebuilds++;
+        return HistogramEqualizer.equalizeSingleThread(nextFrame());
+    }
+
+    @Benchmark
+    public BufferedImage raster(FrameSequenceBenchmark.FrameCounter counter) {
+        counter.frames++;
+        counter.tableRebuilds++;
+        return RasterEqualizer.equalize(nextFrame());
+    }
+
+    private BufferedImage nextFrame() {
+        BufferedImage frame = frames[nextFrame];
+        nextFrame = (nextFrame + 1) % FrameSequenceBenchmark.FRAMES;
+        return frame;
+    }
+}
@@ -0,0 +1,15 @@
+package histogram.benchmarks;
+
+/**
+ * How the channel values of a synthetic benchmark image are spread over 0-255.
+ * The distribution matters for the shared-histogram strategies: the more pixels land
+ * in the same few bins, the more the threads contend on those counters.
+ */
+public enum PixelDistribution {
+    /** Every value equally likely, so updates are spread over all 256 bins. */
+    UNIFORM,
+    /** Most values crowded into a handful of dark bins, like a typical underexposed photo. */
+    SKEWED,
+    /** Every pixel has the same color: a single hot bin per channel. */
+    CONSTANT
+}
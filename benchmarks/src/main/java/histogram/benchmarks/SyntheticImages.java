@@ -0,0 +1,92 @@
+package histogram.benchmarks;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.SplittableRandom;
+
+/**
+ * Generates benchmark images in memory, so the suite needs no input files.
+ * The same arguments always produce the same pixels.
+ */
+public final class SyntheticImages {
+    private static final long SEED = 331L;
+
+    private SyntheticImages() {
+    }
+
+    /**
+     * Parses a size written as "WIDTHxHEIGHT", for example "3840x2160".
+     */
+    public static int[] parseSize(String size) {
+        int separator = size.indexOf('x');
+        if (separator < 0) {
+            throw new IllegalArgumentException("Size must look like WIDTHxHEIGHT: " + size);
+        }
+        return new int[] {
+                Integer.parseInt(size.substring(0, separator)),
+                Integer.parseInt(size.substring(separator + 1))
+        };
+    }
+
+    /**
+     * Creates a TYPE_INT_RGB image whose three channels follow the given distribution.
+     */
+    public static BufferedImage create(int width, int height, PixelDistribution distribution) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        SplittableRandom random = new SplittableRandom(SEED);
+        for (int i = 0; i < pixels.length; i++) {
+            int r = sample(random, distribution);
+            int g = sample(random, distribution);
+            int b = sample(random, distribution);
+            pixels[i] = (r << 16) | (g << 8) | b;
+        }
+        return image;
+    }
+
+    /**
+     * Creates a sequence of TYPE_INT_RGB frames that change slowly, like consecutive video frames:
+     * a fixed scene that pans one pixel per frame while its brightness swings by a few levels
+     * (one full swing per sequence, so looping the sequence stays smooth), plus a little noise.
+     */
+    public static BufferedImage[] createSequence(int width, int height, int frames) {
+        BufferedImage[] sequence = new BufferedImage[frames];
+        SplittableRandom random = new SplittableRandom(SEED);
+        for (int f = 0; f < frames; f++) {
+            BufferedImage frame = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            int[] pixels = ((DataBufferInt) frame.getRaster().getDataBuffer()).getData();
+            int brightness = (int) Math.round(4 * Math.sin(2 * Math.PI * f / frames));
+            for (int y = 0; y < height; y++) {
+                for (int x = 0; x < width; x++) {
+                    int sceneX = x + f;
+                    int r = clamp(40 + (sceneX * 160 / width) + brightness + random.nextInt(8));
+                    int g = clamp(30 + (y * 120 / height) + ((sceneX ^ y) & 31) + brightness + random.nextInt(8));
+                    int b = clamp(20 + ((sceneX / 16 + y / 16) % 2) * 90 + brightness + random.nextInt(8));
+                    pixels[y * width + x] = (r << 16) | (g << 8) | b;
+                }
+            }
+            sequence[f] = frame;
+        }
+        return sequence;
+    }
+
+    private static int clamp(int value) {
+        return Math.max(0, Math.min(255, value));
+    }
+
+    private static int sample(SplittableRandom random, PixelDistribution distribution) {
+        switch (distribution) {
+            case UNIFORM:
+                return random.nextInt(256);
+            case SKEWED: {
+                // Cubing a uniform value puts about half of the pixels into the lowest 32 bins (u^3 * 255 < 32 for u < 0.5).
+                double u = random.nextDouble();
+                return (int) (u * u * u * 255.0);
+            }
+            case CONSTANT:
+                return 128;
+            default:
+                throw new IllegalArgumentException("Unknown distribution: " + distribution);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package histogram;
+
+import java.util.concurrent.atomic.AtomicIntegerArray; // Thread-safe bins
+
+/**
+ * The original shared histogram: one AtomicIntegerArray, one atomic increment per pixel.
+ * Kept as the baseline the other implementations are measured against.
+ */
+public class AtomicSharedHistogram implements SharedHistogram {
+    private final AtomicIntegerArray bins = new AtomicIntegerArray(256);
+
+    @Override
+    public Recorder newRecorder() {
+        return new Recorder() {
+            @Override
+            public void add(int colorValue) {
+                bins.incrementAndGet(colorValue); // Every thread hits the same 256 counters.
+            }
+
+            @Override
+            public void endRow() {
+            }
+
+            @Override
+            public void finish() {
+            }
+        };
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < 256; i++) {
+            bins.set(i, 0);
+        }
+    }
+
+    @Override
+    public void copyTo(int[] histogram) {
+        for (int i = 0; i < 256; i++) {
+            histogram[i] = bins.get(i);
+        }
+    }
+}
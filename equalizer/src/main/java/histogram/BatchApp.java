@@ -0,0 +1,127 @@
+package histogram;
+
+import java.io.File;         // Needed for file operations
+import java.io.IOException;  // Handles file-related errors
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import javax.imageio.ImageIO;
+
+/**
+ * Command line entry point for batch processing.
+ * Usage: BatchApp input outputDir [--strategy=FORK_JOIN] [--threads=N] [--decoders=N]
+ *                 [--equalizers=N] [--encoders=N] [--queue=N] [--format=jpg]
+ * The input is either a directory (every readable image in it) or a text file listing one image path per line.
+ */
+public class BatchApp {
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Usage: BatchApp <inputDir|fileList.txt> <outputDir> [--strategy=FORK_JOIN] [--threads=N]"
+                    + " [--decoders=N] [--equalizers=N] [--encoders=N] [--queue=N] [--format=jpg]");
+            return;
+        }
+        int cores = Runtime.getRuntime().availableProcessors();
+        EqualizationStrategy strategy = EqualizationStrategy.FORK_JOIN;
+        int strategyThreads = cores;
+        int decoders = 2;
+        int equalizers = 1;
+        int encoders = 2;
+        int queueCapacity = 8;
+        String formatName = "jpg";
+        for (int i = 2; i < args.length; i++) {
+            String option = args[i];
+            int equals = option.indexOf('=');
+            if (!option.startsWith("--") || equals < 0) {
+                System.err.println("Error: Unknown argument " + option);
+                return;
+            }
+            String name = option.substring(2, equals);
+            String value = option.substring(equals + 1);
+            try {
+                switch (name) {
+                    case "strategy": strategy = EqualizationStrategy.valueOf(value.toUpperCase(Locale.ROOT)); break;
+                    case "threads": strategyThreads = Integer.parseInt(value); break;
+                    case "decoders": decoders = Integer.parseInt(value); break;
+                    case "equalizers": equalizers = Integer.parseInt(value); break;
+                    case "encoders": encoders = Integer.parseInt(value); break;
+                    case "queue": queueCapacity = Integer.parseInt(value); break;
+                    case "format": formatName = value; break;
+                    default:
+                        System.err.println("Error: Unknown option --" + name);
+                        return;
+                }
+            } catch (IllegalArgumentException e) {
+                // An unknown strategy name or a number that doesn't parse (NumberFormatException).
+                System.err.println("Error: Invalid value for --" + name + ": " + value
+                        + (name.equals("strategy") ? " (one of " + Arrays.toString(EqualizationStrategy.values()) + ")" : ""));
+                return;
+            }
+        }
+
+        if (strategy.isBaseline()) {
+            System.err.println("Error: " + strategy + " is a timing baseline that produces wrong output; pick another strategy");
+            return;
+        }
+
+        try {
+            List<File> inputs = listInputs(new File(args[0]));
+            File outputDir = new File(args[1]);
+            // Bad stage sizes, a format without a writer and colliding output names all fail here, before any work.
+            BatchPipeline pipeline;
+            try {
+                pipeline = new BatchPipeline(strategy, strategyThreads, decoders, equalizers, encoders,
+                        queueCapacity, formatName);
+                pipeline.checkOutputNames(inputs, outputDir);
+            } catch (IllegalArgumentException e) {
+                System.err.println("Error: " + e.getMessage());
+                return;
+            }
+            if (!outputDir.isDirectory() && !outputDir.mkdirs()) {
+                System.err.println("Error: Couldn't create the output directory " + outputDir);
+                return;
+            }
+            System.out.println("Processing " + inputs.size() + " images with " + strategy + " (" + strategyThreads + " threads), "
+                    + decoders + " decoders, " + equalizers + " equalizers, " + encoders + " encoders");
+            pipeline.process(inputs, outputDir).print(System.out);
+        } catch (IOException | InterruptedException e) {
+            System.err.println("An error occurred during batch processing:");
+            e.printStackTrace();
+        }
+    }
+
+    // A directory gives every file ImageIO can read (by extension, sorted by name); any other file is a list of paths.
+    private static List<File> listInputs(File input) throws IOException {
+        List<File> files = new ArrayList<>();
+        if (input.isDirectory()) {
+            Set<String> suffixes = new HashSet<>();
+            for (String suffix : ImageIO.getReaderFileSuffixes()) {
+                suffixes.add(suffix.toLowerCase(Locale.ROOT));
+            }
+            File[] children = input.listFiles();
+            if (children == null) {
+                throw new IOException("Couldn't list " + input);
+            }
+            Arrays.sort(children);
+            for (File child : children) {
+                String name = child.getName();
+                int dot = name.lastIndexOf('.');
+                if (child.isFile() && dot > 0 && suffixes.contains(name.substring(dot + 1).toLowerCase(Locale.ROOT))) {
+                    files.add(child);
+                }
+            }
+        } else {
+            for (String line : Files.readAllLines(input.toPath(), StandardCharsets.UTF_8)) {
+                if (!line.trim().isEmpty()) {
+                    files.add(new File(line.trim()));
+                }
+            }
+        }
+        return files;
+    }
+}
@@ -0,0 +1,300 @@
+package histogram;
+
+import java.awt.image.BufferedImage; // For image manipulation
+import javax.imageio.ImageIO;       // Needed for reading/writing image files
+import java.io.File;                 // Needed for file operations
+import java.io.IOException;          // Handles file-related errors
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;     // Bounded queues between the stages
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;  // The files still waiting to be decoded
+import java.util.concurrent.atomic.AtomicInteger;   // Counts the threads still running in a stage
+
+/**
+ * Equalizes many image files with decoding, equalization and encoding overlapped.
+ * The three stages run on their own threads and are connected by bounded queues:
+ * when a later stage falls behind, the queue in front of it fills up and the earlier
+ * stage blocks (backpressure), so at most a fixed number of images is in memory at once.
+ */
+public class BatchPipeline {
+    // Marks the end of the work in a queue; every consumer thread gets one.
+    private static final Job END_OF_INPUT = new Job(null, null);
+
+    private final EqualizationStrategy strategy;
+    private final int strategyThreads;  // Threads the strategy itself uses for each image
+    private final int decoderThreads;
+    private final int equalizerThreads;
+    private final int encoderThreads;
+    private final int queueCapacity;    // Images that can wait between two stages
+    private final String formatName;    // Output format, e.g. "jpg" or "png"
+
+    /**
+     * @param strategy The equalization engine used by the equalize stage.
+     * @param strategyThreads The thread count passed to the strategy.
+     * @param decoderThreads The number of threads reading and decoding files.
+     * @param equalizerThreads The number of threads running the strategy.
+     * @param encoderThreads The number of threads encoding and writing files.
+     * @param queueCapacity How many images may wait in each queue between stages.
+     * @param formatName The output image format; ImageIO needs a writer for it.
+     */
+    public BatchPipeline(EqualizationStrategy strategy, int strategyThreads, int decoderThreads,
+                         int equalizerThreads, int encoderThreads, int queueCapacity, String formatName) {
+        if (decoderThreads < 1 || equalizerThreads < 1 || encoderThreads < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("Every stage needs at least one thread and a queue capacity of at least 1");
+        }
+        if (strategyThreads < 1) {
+            throw new IllegalArgumentException("The strategy needs at least one thread: " + strategyThreads);
+        }
+        if (strategy.isBaseline()) {
+            throw new IllegalArgumentException(strategy + " is a timing baseline and produces wrong output");
+        }
+        // Checked here rather than at encode time, where every image would be decoded and equalized first.
+        if (!ImageIO.getImageWritersByFormatName(formatName).hasNext()) {
+            throw new IllegalArgumentException("No image writer for format " + formatName);
+        }
+        this.strategy = strategy;
+        this.strategyThreads = strategyThreads;
+        this.decoderThreads = decoderThreads;
+        this.equalizerThreads = equalizerThreads;
+        this.encoderThreads = encoderThreads;
+        this.queueCapacity = queueCapacity;
+        this.formatName = formatName;
+    }
+
+    /**
+     * Runs every input file through the pipeline and writes the results into the output directory,
+     * keeping the file's base name and using the output format's extension.
+     * Files that fail to decode, equalize or encode are reported and skipped.
+     *
+     * @param inputs The image files to process.
+     * @param outputDir The directory for the equalized images.
+     * @return The timing report of the run.
+     * @throws IllegalArgumentException If two inputs would be written to the same output file
+     *         (e.g. "f1.png" and "f1.jpg") or an output would replace its own input; nothing is processed then.
+     * @throws InterruptedException If the calling thread is interrupted; the pipeline threads are stopped.
+     */
+    public BatchReport process(List<File> inputs, File outputDir) throws InterruptedException {
+        checkOutputNames(inputs, outputDir);
+        StageStats decodeStats = new StageStats("decode", decoderThreads);
+        StageStats equalizeStats = new StageStats("equalize", equalizerThreads);
+        StageStats encodeStats = new StageStats("encode", encoderThreads);
+
+        ConcurrentLinkedQueue<File> pending = new ConcurrentLinkedQueue<>(inputs);
+        BlockingQueue<Job> decoded = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<Job> equalized = new ArrayBlockingQueue<>(queueCapacity);
+        // The last thread to leave a stage tells every thread of the next stage to stop.
+        AtomicInteger decodersLeft = new AtomicInteger(decoderThreads);
+        AtomicInteger equalizersLeft = new AtomicInteger(equalizerThreads);
+
+        List<Thread> workerThreads = new ArrayList<>();
+        for (int i = 0; i < decoderThreads; i++) {
+            workerThreads.add(new Thread(() -> {
+                try {
+                    decode(pending, decoded, decodeStats);
+                } finally {
+                    if (decodersLeft.decrementAndGet() == 0) {
+                        signalEnd(decoded, equalizerThreads);
+                    }
+                }
+            }, "decoder-" + i));
+        }
+        for (int i = 0; i < equalizerThreads; i++) {
+            workerThreads.add(new Thread(() -> {
+                try {
+                    equalize(decoded, equalized, equalizeStats);
+                } finally {
+                    if (equalizersLeft.decrementAndGet() == 0) {
+                        signalEnd(equalized, encoderThreads);
+                    }
+                }
+            }, "equalizer-" + i));
+        }
+        for (int i = 0; i < encoderThreads; i++) {
+            workerThreads.add(new Thread(() -> encode(equalized, outputDir, encodeStats), "encoder-" + i));
+        }
+
+        long startTime = System.nanoTime();
+        for (Thread thread : workerThreads) {
+            thread.start();
+        }
+        try {
+            for (Thread thread : workerThreads) {
+                thread.join();
+            }
+        } catch (InterruptedException e) {
+            // Stopping the whole pipeline instead of leaving threads blocked on the queues.
+            for (Thread thread : workerThreads) {
+                thread.interrupt();
+            }
+            throw e;
+        }
+        long wallNanos = System.nanoTime() - startTime;
+        return new BatchReport(wallNanos, Arrays.asList(decodeStats, equalizeStats, encodeStats));
+    }
+
+    private void decode(ConcurrentLinkedQueue<File> pending, BlockingQueue<Job> output, StageStats stats) {
+        File file;
+        while ((file = pending.poll()) != null) {
+            long startTime = System.nanoTime();
+            BufferedImage image;
+            String problem = null;
+            try {
+                image = ImageIO.read(file);
+            } catch (IOException | RuntimeException e) {
+                // Decoders also throw unchecked exceptions (e.g. CMMException on odd ICC profiles);
+                // one bad file mustn't kill the decoder thread.
+                image = null;
+                problem = e.toString();
+            }
+            long endTime = System.nanoTime();
+            if (image == null) {
+                stats.recordFailure(endTime - startTime);
+                System.err.println("Error: Couldn't decode " + file + (problem == null ? "" : ": " + problem));
+                continue;
+            }
+            stats.recordItem(endTime - startTime, file.length());
+            if (!put(output, new Job(file, image), stats)) {
+                return;
+            }
+        }
+    }
+
+    private void equalize(BlockingQueue<Job> input, BlockingQueue<Job> output, StageStats stats) {
+        while (true) {
+            Job job = take(input, stats);
+            if (job == null || job == END_OF_INPUT) {
+                return;
+            }
+            long startTime = System.nanoTime();
+            BufferedImage result;
+            try {
+                result = strategy.equalize(job.image, strategyThreads);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                stats.recordFailure(System.nanoTime() - startTime);
+                System.err.println("Error: Couldn't equalize " + job.file + ": " + e);
+                continue;
+            }
+            stats.recordItem(System.nanoTime() - startTime, 0);
+            if (!put(output, new Job(job.file, result), stats)) {
+                return;
+            }
+        }
+    }
+
+    private void encode(BlockingQueue<Job> input, File outputDir, StageStats stats) {
+        while (true) {
+            Job job = take(input, stats);
+            if (job == null || job == END_OF_INPUT) {
+                return;
+            }
+            File output = new File(outputDir, outputName(job.file));
+            long startTime = System.nanoTime();
+            try {
+                if (!ImageIO.write(job.image, formatName, output)) {
+                    throw new IOException("no writer for format " + formatName);
+                }
+                stats.recordItem(System.nanoTime() - startTime, output.length());
+            } catch (IOException | RuntimeException e) {
+                // A dead encoder would leave the equalizers blocked on a full queue, so every failure is recorded here.
+                stats.recordFailure(System.nanoTime() - startTime);
+                System.err.println("Error: Couldn't write " + output + ": " + e);
+            }
+        }
+    }
+
+    /**
+     * Makes sure no two inputs map to the same output file. They would overwrite each other,
+     * possibly from two encoder threads at once, and both would be counted as written.
+     * Also makes sure no output is its own input (e.g. the output directory is the input
+     * directory and the format matches), which would silently replace the original.
+     * Names and paths are compared ignoring case, since they collide on case-insensitive file systems.
+     *
+     * @param inputs The image files to process.
+     * @param outputDir The directory for the equalized images.
+     * @throws IllegalArgumentException Naming the first input whose output would collide.
+     */
+    public void checkOutputNames(List<File> inputs, File outputDir) {
+        Map<String, File> owners = new HashMap<>();
+        for (File input : inputs) {
+            File output = new File(outputDir, outputName(input));
+            if (normalizedPath(output).equals(normalizedPath(input))) {
+                throw new IllegalArgumentException("The output for " + input + " would overwrite the input itself;"
+                        + " use another output directory or format");
+            }
+            File previous = owners.putIfAbsent(outputName(input).toLowerCase(Locale.ROOT), input);
+            if (previous != null) {
+                throw new IllegalArgumentException(previous + " and " + input + " would both be written to "
+                        + outputName(input) + "; rename one of them or process them separately");
+            }
+        }
+    }
+
+    private static String normalizedPath(File file) {
+        return file.getAbsoluteFile().toPath().normalize().toString().toLowerCase(Locale.ROOT);
+    }
+
+    private String outputName(File input) {
+        String name = input.getName();
+        int dot = name.lastIndexOf('.');
+        String baseName = (dot > 0) ? name.substring(0, dot) : name;
+        return baseName + "." + formatName;
+    }
+
+    // Blocks while the next stage's queue is full; returns false if the thread was interrupted.
+    private static boolean put(BlockingQueue<Job> queue, Job job, StageStats stats) {
+        long startTime = System.nanoTime();
+        try {
+            queue.put(job);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } finally {
+            stats.recordOutputWait(System.nanoTime() - startTime);
+        }
+    }
+
+    // Blocks while this stage's queue is empty; returns null if the thread was interrupted.
+    private static Job take(BlockingQueue<Job> queue, StageStats stats) {
+        long startTime = System.nanoTime();
+        try {
+            return queue.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            stats.recordInputWait(System.nanoTime() - startTime);
+        }
+    }
+
+    private static void signalEnd(BlockingQueue<Job> queue, int consumers) {
+        try {
+            for (int i = 0; i < consumers; i++) {
+                queue.put(END_OF_INPUT);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt(); // The pipeline is being torn down anyway.
+        }
+    }
+
+    /**
+     * An image travelling through the pipeline together with the file it came from.
+     */
+    private static final class Job {
+        final File file;
+        final BufferedImage image;
+
+        Job(File file, BufferedImage image) {
+            this.file = file;
+            this.image = image;
+        }
+    }
+}
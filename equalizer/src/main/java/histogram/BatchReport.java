@@ -0,0 +1,85 @@
+package histogram;
+
+import java.io.PrintStream;
+import java.util.List;
+
+/**
+ * The end-of-run summary of a batch: overall throughput plus the counters of each stage.
+ */
+public class BatchReport {
+    private final long wallNanos;
+    private final List<StageStats> stages; // decode, equalize, encode
+
+    public BatchReport(long wallNanos, List<StageStats> stages) {
+        this.wallNanos = wallNanos;
+        this.stages = stages;
+    }
+
+    public long getWallNanos() {
+        return wallNanos;
+    }
+
+    public List<StageStats> getStages() {
+        return stages;
+    }
+
+    /** Images that made it through every stage. */
+    public long getImagesWritten() {
+        return stages.get(stages.size() - 1).getItems();
+    }
+
+    public long getFailures() {
+        long failures = 0;
+        for (StageStats stage : stages) {
+            failures += stage.getFailures();
+        }
+        return failures;
+    }
+
+    public double imagesPerSecond() {
+        return getImagesWritten() / seconds();
+    }
+
+    /** Input megabytes decoded per second. */
+    public double megabytesReadPerSecond() {
+        return stages.get(0).getBytes() / 1_000_000.0 / seconds();
+    }
+
+    /** Output megabytes encoded per second. */
+    public double megabytesWrittenPerSecond() {
+        return stages.get(stages.size() - 1).getBytes() / 1_000_000.0 / seconds();
+    }
+
+    /** The stage whose threads spent the largest share of the run working. */
+    public StageStats bottleneck() {
+        StageStats busiest = stages.get(0);
+        for (StageStats stage : stages) {
+            if (stage.utilization(wallNanos) > busiest.utilization(wallNanos)) {
+                busiest = stage;
+            }
+        }
+        return busiest;
+    }
+
+    public void print(PrintStream out) {
+        out.printf("Processed %d images (%d failures) in %.2f s%n", getImagesWritten(), getFailures(), seconds());
+        out.printf("Throughput: %.2f images/s, %.2f MB/s read, %.2f MB/s written%n",
+                imagesPerSecond(), megabytesReadPerSecond(), megabytesWrittenPerSecond());
+        out.printf("%-10s %7s %7s %11s %8s %11s %12s%n",
+                "stage", "threads", "items", "ms/item", "busy", "wait input", "wait output");
+        for (StageStats stage : stages) {
+            long threadNanos = wallNanos * stage.getThreads();
+            double msPerItem = (stage.getItems() == 0) ? 0 : stage.getBusyNanos() / 1e6 / stage.getItems();
+            out.printf("%-10s %7d %7d %11.2f %7.0f%% %10.0f%% %11.0f%%%n",
+                    stage.getName(), stage.getThreads(), stage.getItems(), msPerItem,
+                    100.0 * stage.utilization(wallNanos),
+                    100.0 * stage.getInputWaitNanos() / threadNanos,
+                    100.0 * stage.getOutputWaitNanos() / threadNanos);
+        }
+        out.println("Bottleneck: " + bottleneck().getName());
+    }
+
+    private double seconds() {
+        return Math.max(wallNanos, 1) / 1e9;
+    }
+}
@@ -0,0 +1,78 @@
+package histogram;
+
+import java.util.concurrent.atomic.AtomicIntegerArray; // The shared bins the batches are flushed into
+
+/**
+ * A shared histogram where each recorder counts into a plain local array and only adds
+ * its batch to the shared atomic bins every N pixels and/or at the end of each row.
+ * That turns one atomic operation per pixel into at most 256 per flush.
+ */
+public class BatchedSharedHistogram implements SharedHistogram {
+    private final AtomicIntegerArray bins = new AtomicIntegerArray(256);
+    private final int flushEvery;       // Pixels between flushes, 0 to only flush at row ends / finish
+    private final boolean flushAtRowEnd; // Whether every endRow() also flushes
+
+    /**
+     * @param flushEvery The number of pixels a recorder counts locally before flushing (0 = no limit).
+     * @param flushAtRowEnd Whether recorders also flush at the end of every row.
+     */
+    public BatchedSharedHistogram(int flushEvery, boolean flushAtRowEnd) {
+        if (flushEvery < 0) {
+            throw new IllegalArgumentException("flushEvery must not be negative: " + flushEvery);
+        }
+        this.flushEvery = flushEvery;
+        this.flushAtRowEnd = flushAtRowEnd;
+    }
+
+    @Override
+    public Recorder newRecorder() {
+        return new Recorder() {
+            private final int[] localBins = new int[256]; // Only touched by the owning thread
+            private int pending;                         // Pixels counted since the last flush
+
+            @Override
+            public void add(int colorValue) {
+                localBins[colorValue]++;
+                if (++pending == flushEvery) {
+                    flush();
+                }
+            }
+
+            @Override
+            public void endRow() {
+                if (flushAtRowEnd) {
+                    flush();
+                }
+            }
+
+            @Override
+            public void finish() {
+                flush();
+            }
+
+            private void flush() {
+                for (int i = 0; i < 256; i++) {
+                    if (localBins[i] != 0) {
+                        bins.addAndGet(i, localBins[i]);
+                        localBins[i] = 0;
+                    }
+                }
+                pending = 0;
+            }
+        };
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < 256; i++) {
+            bins.set(i, 0);
+        }
+    }
+
+    @Override
+    public void copyTo(int[] histogram) {
+        for (int i = 0; i < 256; i++) {
+            histogram[i] = bins.get(i);
+        }
+    }
+}
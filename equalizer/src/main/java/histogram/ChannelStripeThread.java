@@ -0,0 +1,88 @@
+package histogram;
+
+import java.util.concurrent.BrokenBarrierException; // Thrown if another channel thread gave up at the barrier
+import java.util.concurrent.CyclicBarrier;          // Lets all channel threads wait until every lookup table exists
+
+/**
+ * A channel thread that never locks.
+ * Phase 1: it builds the histogram and lookup table of its own channel (R, G, or B).
+ * Phase 2: once all three tables are ready, it maps its own stripe of rows through
+ * all three tables, so every output pixel is written exactly once by exactly one thread.
+ */
+class ChannelStripeThread extends Thread {
+    private final PixelBuffer pixels;        // The original image's pixels
+    private final int channelToProcess;      // Which channel's table this thread builds (0=R, 1=G, 2=B)
+    private final int stripeCount;           // How many row stripes the apply phase is split into
+    private final int[][] lookupTables;      // Shared: each thread only fills its own slot
+    private final CyclicBarrier tablesReady; // Released when all three tables are filled
+    private final int[] target;              // Shared output pixels; stripes never overlap
+    private volatile boolean stripeWritten;  // Stays false if I was stopped before writing my stripe
+    private volatile Throwable failure;      // Why my table couldn't be built, if it couldn't
+
+    /**
+     * Constructor for the lock-free channel thread.
+     * @param pixels The input image's pixels.
+     * @param channel The color channel this thread builds the lookup table for; also its stripe index.
+     * @param stripeCount The number of channel threads sharing the apply phase.
+     * @param lookupTables The shared array of per-channel lookup tables.
+     * @param tablesReady The barrier all channel threads meet at between the two phases.
+     * @param target The packed RGB output array.
+     */
+    ChannelStripeThread(PixelBuffer pixels, int channel, int stripeCount, int[][] lookupTables,
+                        CyclicBarrier tablesReady, int[] target) {
+        this.pixels = pixels;
+        this.channelToProcess = channel;
+        this.stripeCount = stripeCount;
+        this.lookupTables = lookupTables;
+        this.tablesReady = tablesReady;
+        this.target = target;
+    }
+
+    @Override
+    public void run() {
+        int height = pixels.getHeight();
+
+        // Step 1: Histogram and lookup table for my channel only.
+        try {
+            int[] histogram = new int[256];
+            pixels.accumulateChannel(0, height, channelToProcess, histogram);
+            lookupTables[channelToProcess] = HistogramEqualizer.buildLookupTable(histogram, (long) pixels.getWidth() * height);
+        } catch (Throwable e) {
+            // Without me the others would wait at the barrier forever; breaking it lets them give up too.
+            failure = e;
+            tablesReady.reset();
+            return;
+        }
+
+        // Step 2: Waiting for the other channels. The barrier also makes their tables visible to me.
+        try {
+            tablesReady.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return;
+        } catch (BrokenBarrierException e) {
+            return; // Another channel thread was interrupted, the result is abandoned.
+        }
+
+        // Step 3: Writing my own stripe of rows with all three channels composed.
+        // No other thread touches these rows, so no synchronization is needed.
+        int startY = channelToProcess * height / stripeCount;
+        int endY = (channelToProcess + 1) * height / stripeCount;
+        pixels.apply(startY, endY, lookupTables[0], lookupTables[1], lookupTables[2], target);
+        stripeWritten = true;
+    }
+
+    /**
+     * Whether this thread wrote its stripe. Check after join(): false means the result is incomplete.
+     */
+    boolean isStripeWritten() {
+        return stripeWritten;
+    }
+
+    /**
+     * What went wrong while building my lookup table, or null. Check after join().
+     */
+    Throwable getFailure() {
+        return failure;
+    }
+}
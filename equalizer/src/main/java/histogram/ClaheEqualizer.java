@@ -0,0 +1,443 @@
+package histogram;
+
+import java.awt.image.BufferedImage; // For image manipulation
+import java.util.concurrent.ForkJoinPool;    // Work-stealing pool shared by all calls
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Contrast-limited adaptive histogram equalization (CLAHE) of the R, G and B channels.
+ * Instead of one lookup table per channel for the whole image, the image is divided into a
+ * grid of tiles, each tile gets its own table from its own clipped histogram, and every pixel
+ * is mapped by bilinear interpolation between the tables of the four nearest tile centres.
+ * Clipping caps each histogram bin at clipLimit times the average bin height and spreads the
+ * excess evenly over all bins, which keeps flat, noisy areas from being blown out.
+ *
+ * equalize() is the tiled version. equalizeSlidingWindow() gives every pixel its own
+ * window instead, updating the window histogram incrementally as it slides along a row.
+ * Both run on this object's ForkJoinPool, which lives until shutdown().
+ */
+public class ClaheEqualizer {
+    // Rows per apply task are chosen so a task covers roughly this many pixels.
+    private static final int PIXELS_PER_TASK = 1 << 15;
+    private static final int WEIGHT_ONE = 256; // Fixed-point 1.0 for the interpolation weights
+
+    private final ForkJoinPool pool;
+    private final int tilesX;
+    private final int tilesY;
+    private final double clipLimit;
+
+    /**
+     * @param parallelism The number of worker threads.
+     * @param tilesX The number of tile columns.
+     * @param tilesY The number of tile rows.
+     * @param clipLimit The highest allowed bin, as a multiple of the average bin height (at least 1).
+     */
+    public ClaheEqualizer(int parallelism, int tilesX, int tilesY, double clipLimit) {
+        if (tilesX < 1 || tilesY < 1) {
+            throw new IllegalArgumentException("There must be at least one tile in each direction: " + tilesX + "x" + tilesY);
+        }
+        if (!(clipLimit >= 1)) {
+            throw new IllegalArgumentException("clipLimit must be at least 1: " + clipLimit);
+        }
+        this.pool = new ForkJoinPool(parallelism);
+        this.tilesX = tilesX;
+        this.tilesY = tilesY;
+        this.clipLimit = clipLimit;
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Tiled CLAHE: per-tile clipped histograms, interpolated between tile centres.
+     *
+     * @param original The input image.
+     * @return The equalized image (TYPE_INT_RGB).
+     */
+    public BufferedImage equalize(BufferedImage original) {
+        int width = original.getWidth();
+        int height = original.getHeight();
+        PixelBuffer pixels = PixelBuffer.wrap(original);
+
+        // No more tiles than pixels in either direction, so every tile has something in it.
+        int columns = Math.min(tilesX, width);
+        int rows = Math.min(tilesY, height);
+        int[] xBounds = tileBounds(width, columns);
+        int[] yBounds = tileBounds(height, rows);
+
+        // Step 1: One task per tile builds its histograms and turns them into the tile's tables.
+        char[][] tables = new char[columns * rows][];
+        pool.invoke(new TileTableTask(pixels, xBounds, yBounds, clipLimit, tables, 0, tables.length));
+
+        // Step 2: For every column and row, the two nearest tile centres and the weight between them.
+        Interpolation xAxis = new Interpolation(xBounds, width);
+        Interpolation yAxis = new Interpolation(yBounds, height);
+
+        // Step 3: Interpolating the four neighbouring tables for every pixel, in parallel row bands.
+        BufferedImage resultImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        int rowsPerTask = Math.max(1, PIXELS_PER_TASK / width);
+        pool.invoke(new InterpolateTask(pixels, tables, columns, xAxis, yAxis,
+                PixelBuffer.dataOf(resultImage), 0, height, rowsPerTask));
+        return resultImage;
+    }
+
+    /**
+     * Sliding-window CLAHE: every pixel is mapped through the clipped histogram of the
+     * windowSize x windowSize window centred on it (cut off at the image border).
+     * Along a row the window histogram is updated by adding the column that enters and
+     * removing the one that leaves, instead of being rebuilt for every pixel.
+     * Much slower than the tiled version, but free of tile interpolation artefacts.
+     *
+     * @param original The input image.
+     * @param windowSize The window's side length in pixels; odd, so the window has a centre pixel.
+     * @return The equalized image (TYPE_INT_RGB).
+     */
+    public BufferedImage equalizeSlidingWindow(BufferedImage original, int windowSize) {
+        if (windowSize < 1 || windowSize % 2 == 0) {
+            throw new IllegalArgumentException("windowSize must be a positive odd number: " + windowSize);
+        }
+        int width = original.getWidth();
+        int height = original.getHeight();
+        PixelBuffer pixels = PixelBuffer.wrap(original);
+
+        // The windows reach into neighbouring rows, so I unpack the whole image once.
+        int[] rgb = new int[width * height];
+        int[] row = new int[width];
+        for (int y = 0; y < height; y++) {
+            pixels.readRow(y, row);
+            System.arraycopy(row, 0, rgb, y * width, width);
+        }
+
+        BufferedImage resultImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        pool.invoke(new SlidingWindowTask(rgb, width, height, windowSize / 2, clipLimit,
+                PixelBuffer.dataOf(resultImage), 0, height));
+        return resultImage;
+    }
+
+    /**
+     * Stops the pool's workers. The equalizer can't be used afterwards.
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    // Tile t covers [bounds[t], bounds[t + 1]).
+    private static int[] tileBounds(int size, int count) {
+        int[] bounds = new int[count + 1];
+        for (int t = 0; t <= count; t++) {
+            bounds[t] = (int) ((long) t * size / count);
+        }
+        return bounds;
+    }
+
+    /**
+     * Fills table[offset .. offset + 255] from a histogram clipped at clipLimit times the average
+     * bin, with the clipped excess spread evenly over all bins.
+     */
+    private static void buildClippedTable(int[] histogram, long totalPixels, double clipLimit, char[] table, int offset) {
+        double clip = Math.max(1.0, clipLimit * totalPixels / 256.0);
+        double excess = 0;
+        for (int i = 0; i < 256; i++) {
+            if (histogram[i] > clip) {
+                excess += histogram[i] - clip;
+            }
+        }
+        double spread = excess / 256.0;
+        double cdf = 0;
+        int maxIntensity = 255;
+        for (int i = 0; i < 256; i++) {
+            cdf += Math.min(histogram[i], clip) + spread;
+            table[offset + i] = (char) Math.min(maxIntensity, (int) (cdf * maxIntensity / totalPixels));
+        }
+    }
+
+    // Same mapping as buildClippedTable, but only for one value, straight from the histogram.
+    private static int clippedValue(int[] histogram, int value, int totalPixels, double clipLimit) {
+        double clip = Math.max(1.0, clipLimit * totalPixels / 256.0);
+        double excess = 0;
+        double below = 0;
+        for (int i = 0; i < 256; i++) {
+            int count = histogram[i];
+            double kept = (count > clip) ? clip : count;
+            excess += count - kept;
+            if (i <= value) {
+                below += kept;
+            }
+        }
+        double cdf = below + excess * (value + 1) / 256.0;
+        return Math.min(255, (int) (cdf * 255 / totalPixels));
+    }
+
+    /**
+     * For each coordinate along one axis: the tile centres on either side and the fixed-point
+     * weight of the second one. Before the first centre and after the last, both are the same tile.
+     */
+    private static final class Interpolation {
+        final int[] lowTile;
+        final int[] highTile;
+        final int[] highWeight; // 0..WEIGHT_ONE
+
+        Interpolation(int[] bounds, int size) {
+            int tiles = bounds.length - 1;
+            lowTile = new int[size];
+            highTile = new int[size];
+            highWeight = new int[size];
+            int t = 0;
+            for (int c = 0; c < size; c++) {
+                while (t + 1 < tiles && center(bounds, t + 1) <= c) {
+                    t++;
+                }
+                double low = center(bounds, t);
+                if (c <= low || t + 1 == tiles) {
+                    lowTile[c] = t;
+                    highTile[c] = t;
+                } else {
+                    double high = center(bounds, t + 1);
+                    lowTile[c] = t;
+                    highTile[c] = t + 1;
+                    highWeight[c] = (int) Math.round((c - low) / (high - low) * WEIGHT_ONE);
+                }
+            }
+        }
+
+        private static double center(int[] bounds, int tile) {
+            return (bounds[tile] + bounds[tile + 1] - 1) / 2.0;
+        }
+    }
+
+    /**
+     * Builds the clipped tables (R, G, B one after another, 768 entries) of tiles [start, end).
+     */
+    private static final class TileTableTask extends RecursiveAction {
+        private final PixelBuffer pixels;
+        private final int[] xBounds;
+        private final int[] yBounds;
+        private final double clipLimit;
+        private final char[][] tables;
+        private final int start;
+        private final int end;
+
+        TileTableTask(PixelBuffer pixels, int[] xBounds, int[] yBounds, double clipLimit,
+                      char[][] tables, int start, int end) {
+            this.pixels = pixels;
+            this.xBounds = xBounds;
+            this.yBounds = yBounds;
+            this.clipLimit = clipLimit;
+            this.tables = tables;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start > 1) {
+                int middle = (start + end) >>> 1;
+                invokeAll(new TileTableTask(pixels, xBounds, yBounds, clipLimit, tables, start, middle),
+                        new TileTableTask(pixels, xBounds, yBounds, clipLimit, tables, middle, end));
+                return;
+            }
+            int columns = xBounds.length - 1;
+            int tileX = start % columns;
+            int tileY = start / columns;
+            int[] red = new int[256];
+            int[] green = new int[256];
+            int[] blue = new int[256];
+            pixels.accumulate(xBounds[tileX], xBounds[tileX + 1], yBounds[tileY], yBounds[tileY + 1], red, green, blue);
+
+            long tilePixels = (long) (xBounds[tileX + 1] - xBounds[tileX]) * (yBounds[tileY + 1] - yBounds[tileY]);
+            // Levels fit in a char; the small element type also lets the row blending below vectorize.
+            char[] table = new char[3 * 256];
+            buildClippedTable(red, tilePixels, clipLimit, table, 0);
+            buildClippedTable(green, tilePixels, clipLimit, table, 256);
+            buildClippedTable(blue, tilePixels, clipLimit, table, 512);
+            tables[start] = table;
+        }
+    }
+
+    /**
+     * Maps rows [startY, endY) by bilinear interpolation between the four nearest tiles' tables.
+     */
+    private static final class InterpolateTask extends RecursiveAction {
+        private final PixelBuffer pixels;
+        private final char[][] tables;
+        private final int columns;
+        private final Interpolation xAxis;
+        private final Interpolation yAxis;
+        private final int[] target;
+        private final int startY;
+        private final int endY;
+        private final int rowsPerTask;
+
+        InterpolateTask(PixelBuffer pixels, char[][] tables, int columns, Interpolation xAxis, Interpolation yAxis,
+                        int[] target, int startY, int endY, int rowsPerTask) {
+            this.pixels = pixels;
+            this.tables = tables;
+            this.columns = columns;
+            this.xAxis = xAxis;
+            this.yAxis = yAxis;
+            this.target = target;
+            this.startY = startY;
+            this.endY = endY;
+            this.rowsPerTask = rowsPerTask;
+        }
+
+        @Override
+        protected void compute() {
+            if (endY - startY > rowsPerTask) {
+                int middleY = (startY + endY) >>> 1;
+                invokeAll(new InterpolateTask(pixels, tables, columns, xAxis, yAxis, target, startY, middleY, rowsPerTask),
+                        new InterpolateTask(pixels, tables, columns, xAxis, yAxis, target, middleY, endY, rowsPerTask));
+                return;
+            }
+            int width = pixels.getWidth();
+            int[] row = new int[width];
+            // Bilinear interpolation is separable: per row I first blend the top and bottom tile rows
+            // into one table per tile column, then each pixel only blends its left and right column.
+            // The blended entries (at most 255 * 256) fit in a char, which keeps the tables small
+            // enough to stay in the L1 cache. Rows with the same tile pair and weight as the row
+            // before (e.g. everything above the first and below the last tile centre) reuse the blend.
+            char[] rowTables = new char[columns * 768];
+            int blendedTop = -1;
+            int blendedBottom = -1;
+            int blendedWeight = -1;
+            // The two tables of the current segment, copied out of rowTables. With a fixed-size array
+            // and masked indices the JIT can drop the bounds checks in the pixel loop.
+            char[] left = new char[768];
+            char[] right = new char[768];
+            int[] lowX = xAxis.lowTile;
+            int[] weightX = xAxis.highWeight;
+            for (int y = startY; y < endY; y++) {
+                int topRow = yAxis.lowTile[y] * columns;
+                int bottomRow = yAxis.highTile[y] * columns;
+                int wy = yAxis.highWeight[y];
+                if (topRow != blendedTop || bottomRow != blendedBottom || wy != blendedWeight) {
+                    for (int column = 0; column < columns; column++) {
+                        char[] top = tables[topRow + column];
+                        char[] bottom = tables[bottomRow + column];
+                        int base = column * 768;
+                        for (int i = 0; i < 768; i++) {
+                            rowTables[base + i] = (char) ((top[i] << 8) + (bottom[i] - top[i]) * wy);
+                        }
+                    }
+                    blendedTop = topRow;
+                    blendedBottom = bottomRow;
+                    blendedWeight = wy;
+                }
+
+                pixels.readRow(y, row);
+                int out = y * width;
+                // Walking the row in segments between two tile centres, where both tables stay the same.
+                // Each segment's right table is the next one's left table, so only one copy is needed per segment.
+                System.arraycopy(rowTables, lowX[0] * 768, right, 0, 768);
+                int x = 0;
+                while (x < width) {
+                    int column = lowX[x];
+                    int segmentEnd = x + 1;
+                    while (segmentEnd < width && lowX[segmentEnd] == column) {
+                        segmentEnd++;
+                    }
+                    char[] swap = left;
+                    left = right;
+                    right = swap;
+                    // Past the last centre the right table's weight is 0, so any valid table will do.
+                    int nextColumn = (column + 1 < columns) ? column + 1 : column;
+                    System.arraycopy(rowTables, nextColumn * 768, right, 0, 768);
+                    for (; x < segmentEnd; x++) {
+                        int wx = weightX[x];
+                        int rgb = row[x];
+                        int r = (rgb >> 16) & 0xFF;
+                        int g = 256 | ((rgb >> 8) & 0xFF);
+                        int b = 512 | (rgb & 0xFF);
+                        target[out + x] = (blend(left[r], right[r], wx) << 16)
+                                | (blend(left[g], right[g], wx) << 8)
+                                | blend(left[b], right[b], wx);
+                    }
+                }
+            }
+        }
+
+        // Horizontal half of the fixed-point bilinear blend; the result is rounded to the nearest level.
+        private static int blend(int left, int right, int wx) {
+            return ((left << 8) + (right - left) * wx + (WEIGHT_ONE * WEIGHT_ONE / 2)) >> 16;
+        }
+    }
+
+    /**
+     * Sliding-window CLAHE for rows [startY, endY); each row keeps one running histogram per channel.
+     */
+    private static final class SlidingWindowTask extends RecursiveAction {
+        private final int[] rgb;
+        private final int width;
+        private final int height;
+        private final int radius;
+        private final double clipLimit;
+        private final int[] target;
+        private final int startY;
+        private final int endY;
+
+        SlidingWindowTask(int[] rgb, int width, int height, int radius, double clipLimit,
+                          int[] target, int startY, int endY) {
+            this.rgb = rgb;
+            this.width = width;
+            this.height = height;
+            this.radius = radius;
+            this.clipLimit = clipLimit;
+            this.target = target;
+            this.startY = startY;
+            this.endY = endY;
+        }
+
+        @Override
+        protected void compute() {
+            if (endY - startY > 1) {
+                int middleY = (startY + endY) >>> 1;
+                invokeAll(new SlidingWindowTask(rgb, width, height, radius, clipLimit, target, startY, middleY),
+                        new SlidingWindowTask(rgb, width, height, radius, clipLimit, target, middleY, endY));
+                return;
+            }
+            int y = startY;
+            int top = Math.max(0, y - radius);
+            int bottom = Math.min(height - 1, y + radius);
+            int windowRows = bottom - top + 1;
+            int[][] histograms = new int[3][256];
+
+            // The window of pixel 0 covers columns [0, radius].
+            for (int x = 0; x <= Math.min(width - 1, radius); x++) {
+                addColumn(histograms, x, top, bottom, 1);
+            }
+            for (int x = 0; x < width; x++) {
+                if (x > 0) {
+                    // Sliding right by one: one column enters, one column leaves.
+                    int entering = x + radius;
+                    if (entering < width) {
+                        addColumn(histograms, entering, top, bottom, 1);
+                    }
+                    int leaving = x - radius - 1;
+                    if (leaving >= 0) {
+                        addColumn(histograms, leaving, top, bottom, -1);
+                    }
+                }
+                int windowColumns = Math.min(width - 1, x + radius) - Math.max(0, x - radius) + 1;
+                int windowPixels = windowRows * windowColumns;
+                int pixel = rgb[y * width + x];
+                int r = clippedValue(histograms[0], (pixel >> 16) & 0xFF, windowPixels, clipLimit);
+                int g = clippedValue(histograms[1], (pixel >> 8) & 0xFF, windowPixels, clipLimit);
+                int b = clippedValue(histograms[2], pixel & 0xFF, windowPixels, clipLimit);
+                target[y * width + x] = (r << 16) | (g << 8) | b;
+            }
+        }
+
+        private void addColumn(int[][] histograms, int x, int top, int bottom, int delta) {
+            int[] red = histograms[0];
+            int[] green = histograms[1];
+            int[] blue = histograms[2];
+            for (int yy = top; yy <= bottom; yy++) {
+                int pixel = rgb[yy * width + x];
+                red[(pixel >> 16) & 0xFF] += delta;
+                green[(pixel >> 8) & 0xFF] += delta;
+                blue[pixel & 0xFF] += delta;
+            }
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package histogram;
+
+import java.awt.image.BufferedImage; // For image manipulation
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap; // Keeps one pooled equalizer per thread count
+
+/**
+ * Every equalization strategy in the project behind one call, so the app, the batch tools
+ * and the benchmarks can pick a strategy by name instead of hardcoding method calls.
+ * Strategies that aren't spatially parallel ignore the thread count.
+ */
+public enum EqualizationStrategy {
+    SINGLE(false, false) {
+        @Override
+        public BufferedImage equalize(BufferedImage original, int numOfThreads) {
+            return HistogramEqualizer.equalizeSingleThread(original);
+        }
+    },
+    /**
+     * The original channel-per-thread version, kept only as a baseline to compare against.
+     * Each thread writes a whole pixel with just its own channel equalized, so the threads
+     * overwrite each other and the output is not a correct equalization.
+     */
+    CHANNEL(false, true) {
+        @Override
+        public BufferedImage equalize(BufferedImage original, int numOfThreads) throws InterruptedException {
+            return HistogramEqualizer.equalizeMultiThread(original);
+        }
+    },
+    CHANNEL_LOCK_FREE(false, false) {
+        @Override
+        public BufferedImage equalize(BufferedImage original, int numOfThreads) throws InterruptedException {
+            return HistogramEqualizer.equalizeMultiThreadLockFree(original);
+        }
+    },
+    SHARED_ATOMIC(true, false) {
+        @Override
+        public BufferedImage equalize(BufferedImage original, int numOfThreads) throws InterruptedException {
+            return HistogramEqualizer.equalizeMultiThreadSharedAtomic(original, numOfThreads, new AtomicSharedHistogram());
+        }
+    },
+    SHARED_STRIPED(true, false) {
+        @Override
+        public BufferedImage equalize(BufferedImage original, int numOfThreads) throws InterruptedException {
+            return HistogramEqualizer.equalizeMultiThreadSharedAtomic(original, numOfThreads, new StripedSharedHistogram());
+        }
+    },
+    SHARED_BATCHED(true, false) {
+        @Override
+        public BufferedImage equalize(BufferedImage original, int numOfThreads) throws InterruptedException {
+            return HistogramEqualizer.equalizeMultiThreadSharedAtomic(original, numOfThreads, new BatchedSharedHistogram(4096, true));
+        }
+    },
+    SUB_HISTOGRAM(true, false) {
+        @Override
+        public BufferedImage equalize(BufferedImage original, int numOfThreads) throws InterruptedException {
+            return HistogramEqualizer.equalizeMultiThreadSubHistograms(original, numOfThreads);
+        }
+    },
+    RASTER(false, false) {
+        @Override
+        public BufferedImage equalize(BufferedImage original, int numOfThreads) {
+            return RasterEqualizer.equalize(original);
+        }
+    },
+    FORK_JOIN(true, false) {
+        @Override
+        public BufferedImage equalize(BufferedImage original, int numOfThreads) {
+            // Pools are long-lived: the first call with a given thread count creates it, later calls reuse it.
+            return FORK_JOIN_EQUALIZERS.computeIfAbsent(numOfThreads, ForkJoinEqualizer::new).equalize(original);
+        }
+    },
+    /** Adaptive (local) equalization: 8x8 tiles, clip limit 2. Not the same output as the global strategies. */
+    CLAHE(true, false) {
+        @Override
+        public BufferedImage equalize(BufferedImage original, int numOfThreads) {
+            return CLAHE_EQUALIZERS.computeIfAbsent(numOfThreads, threads -> new ClaheEqualizer(threads, 8, 8, 2.0))
+                    .equalize(original);
+        }
+    };
+
+    private static final Map<Integer, ForkJoinEqualizer> FORK_JOIN_EQUALIZERS = new ConcurrentHashMap<>();
+    private static final Map<Integer, ClaheEqualizer> CLAHE_EQUALIZERS = new ConcurrentHashMap<>();
+
+    private final boolean usesThreadCount;
+    private final boolean baseline;
+
+    EqualizationStrategy(boolean usesThreadCount, boolean baseline) {
+        this.usesThreadCount = usesThreadCount;
+        this.baseline = baseline;
+    }
+
+    /**
+     * Whether the number of threads passed to equalize() changes how this strategy runs.
+     */
+    public boolean usesThreadCount() {
+        return usesThreadCount;
+    }
+
+    /**
+     * Whether this strategy is only kept as a baseline for timing comparisons and produces wrong
+     * output. Baselines must not be used to process real images.
+     */
+    public boolean isBaseline() {
+        return baseline;
+    }
+
+    /**
+     * Equalizes the image with this strategy.
+     *
+     * @param original The input image.
+     * @param numOfThreads The number of threads (ignored when usesThreadCount() is false).
+     * @return The equalized BufferedImage.
+     * @throws InterruptedException If a worker thread is interrupted.
+     */
+    public abstract BufferedImage equalize(BufferedImage original, int numOfThreads) throws InterruptedException;
+}
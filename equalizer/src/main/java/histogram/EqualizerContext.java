@@ -0,0 +1,302 @@
+package histogram;
+
+import java.awt.image.BufferedImage; // For image manipulation
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger; // Counts the workers still busy with a stage
+import java.util.concurrent.locks.LockSupport;    // Parking and waking threads without allocating
+
+/**
+ * A reusable equalizer for a service that equalizes many images of the same size.
+ * It works like equalizeMultiThreadSubHistograms (every worker counts its own rows, then the
+ * sub-histograms are merged), but everything that method creates per call is created once here:
+ * the worker threads, their sub-histograms, the merged histograms, the CDF, the lookup tables
+ * and the output image. What is still allocated per image depends on the input:
+ * - the same image object again (e.g. a decoder reading into one reused image): nothing;
+ * - a new INT_RGB, INT_ARGB or 3BYTE_BGR image: one small view object (PixelBuffer);
+ * - a new image of any other type: the view plus a full packed copy of its pixels.
+ *
+ * The returned image belongs to the context and is overwritten by the next call, so copy it
+ * (or finish writing it) before equalizing the next image. One context serves one calling
+ * thread at a time. Per-stage timings go to an EqualizerListener and are also summed up here.
+ *
+ * The worker threads keep the context reachable until it is closed, so always close it
+ * (try-with-resources, or shutdown()) when it's no longer needed.
+ */
+public class EqualizerContext implements AutoCloseable {
+    private static final EqualizerListener.Stage[] STAGES = EqualizerListener.Stage.values(); // values() copies every call
+
+    private final Worker[] workers;
+    private final long[][] mergedHistograms = new long[3][256];
+    private final long[] cdf = new long[256];
+    private final int[][] lookupTables = new int[3][256];
+    private final long[] lastStageNanos = new long[STAGES.length];
+    private final long[] totalStageNanos = new long[STAGES.length];
+    private EqualizerListener listener = EqualizerListener.NONE;
+
+    private BufferedImage output;   // Reused while the image size stays the same
+    private int[] outputPixels;
+    private int width = -1;
+    private int height = -1;
+    private BufferedImage lastInput; // The view of an input is reused if the same image comes again
+    private PixelBuffer lastPixels;
+
+    private long imagesProcessed;
+    private long pixelsProcessed;
+    private long outputAllocations;
+
+    // Hand-off between the calling thread and the workers. The caller writes pixels/target, the
+    // stripes and applyPhase, then bumps phase. What a phase does is published explicitly rather than
+    // derived from the phase number, which would be off by one after a histogram phase that failed.
+    private volatile PixelBuffer pixels;
+    private volatile int[] target;
+    private boolean applyPhase; // false: count histograms, true: apply the tables
+    private volatile int phase;
+    private volatile boolean running = true;
+    private volatile Thread caller;
+    private volatile Throwable workerFailure;
+    private final AtomicInteger busyWorkers = new AtomicInteger();
+
+    /**
+     * Creates the context and starts its worker threads.
+     * @param numOfThreads The number of worker threads; each one handles a horizontal stripe.
+     */
+    public EqualizerContext(int numOfThreads) {
+        if (numOfThreads < 1) {
+            throw new IllegalArgumentException("numOfThreads must be at least 1: " + numOfThreads);
+        }
+        workers = new Worker[numOfThreads];
+        for (int i = 0; i < numOfThreads; i++) {
+            workers[i] = new Worker("equalizer-context-" + i);
+            workers[i].start();
+        }
+    }
+
+    /**
+     * Sets the listener that receives the timings of every following image.
+     * @param listener The listener, or null for none.
+     */
+    public void setListener(EqualizerListener listener) {
+        this.listener = (listener == null) ? EqualizerListener.NONE : listener;
+    }
+
+    public int getNumOfThreads() {
+        return workers.length;
+    }
+
+    /**
+     * Equalizes the R, G and B channels of the image.
+     * The output is identical to RasterEqualizer.equalize.
+     *
+     * @param original The input image.
+     * @return The equalized image (TYPE_INT_RGB), owned by this context and overwritten by the next call.
+     * @throws IllegalStateException If the context was shut down (before or during the call), a worker failed,
+     *         or the calling thread was interrupted (its interrupt status is kept). The context stays usable
+     *         after a worker failure or an interrupt.
+     */
+    public BufferedImage equalize(BufferedImage original) {
+        if (!running) {
+            throw new IllegalStateException("The context has been shut down");
+        }
+        caller = Thread.currentThread();
+        long startTime = System.nanoTime();
+        prepare(original);
+        long prepareDone = System.nanoTime();
+
+        // Step 1: Every worker builds the sub-histograms of its own rows.
+        runPhase(false);
+        long histogramDone = System.nanoTime();
+
+        // Step 2: Combining the sub-histograms into one histogram per channel.
+        for (int channel = 0; channel < 3; channel++) {
+            long[] merged = mergedHistograms[channel];
+            Arrays.fill(merged, 0);
+            for (Worker worker : workers) {
+                int[] subHist = worker.subHistograms[channel];
+                for (int i = 0; i < 256; i++) {
+                    merged[i] += subHist[i];
+                }
+            }
+        }
+        long mergeDone = System.nanoTime();
+
+        // Step 3: CDF and lookup table of every channel, into the preallocated buffers.
+        long totalPixels = (long) width * height;
+        for (int channel = 0; channel < 3; channel++) {
+            HistogramEqualizer.buildLookupTable(mergedHistograms[channel], totalPixels, cdf, lookupTables[channel]);
+        }
+        long lookupTableDone = System.nanoTime();
+
+        // Step 4: Every worker maps its own rows into the output buffer.
+        runPhase(true);
+        long endTime = System.nanoTime();
+
+        imagesProcessed++;
+        pixelsProcessed += totalPixels;
+        record(EqualizerListener.Stage.PREPARE, prepareDone - startTime);
+        record(EqualizerListener.Stage.HISTOGRAM, histogramDone - prepareDone);
+        record(EqualizerListener.Stage.MERGE, mergeDone - histogramDone);
+        record(EqualizerListener.Stage.LOOKUP_TABLE, lookupTableDone - mergeDone);
+        record(EqualizerListener.Stage.APPLY, endTime - lookupTableDone);
+        listener.imageCompleted(width, height, endTime - startTime);
+        return output;
+    }
+
+    /** Time spent in the stage during the last equalize() call. */
+    public long getLastStageNanos(EqualizerListener.Stage stage) {
+        return lastStageNanos[stage.ordinal()];
+    }
+
+    /** Time spent in the stage over all equalize() calls. */
+    public long getTotalStageNanos(EqualizerListener.Stage stage) {
+        return totalStageNanos[stage.ordinal()];
+    }
+
+    public long getImagesProcessed() {
+        return imagesProcessed;
+    }
+
+    public long getPixelsProcessed() {
+        return pixelsProcessed;
+    }
+
+    /** How many times a new output image had to be created because the image size changed. */
+    public long getOutputAllocations() {
+        return outputAllocations;
+    }
+
+    /**
+     * Stops the worker threads. The context can't be used afterwards.
+     * May be called from another thread; an equalize() call in progress then fails with
+     * an IllegalStateException instead of waiting for workers that are gone.
+     */
+    public void shutdown() {
+        running = false;
+        for (Worker worker : workers) {
+            LockSupport.unpark(worker);
+        }
+        Thread waiting = caller;
+        if (waiting != null) {
+            LockSupport.unpark(waiting); // Lets it notice that running is false
+        }
+    }
+
+    /**
+     * Same as shutdown(), so the context can be used in try-with-resources.
+     */
+    @Override
+    public void close() {
+        shutdown();
+    }
+
+    // Points the workers at this image, resizing the output and the stripes only when the size changes.
+    private void prepare(BufferedImage original) {
+        int newWidth = original.getWidth();
+        int newHeight = original.getHeight();
+        if (newWidth != width || newHeight != height) {
+            width = newWidth;
+            height = newHeight;
+            output = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+            outputPixels = PixelBuffer.dataOf(output);
+            outputAllocations++;
+            for (int i = 0; i < workers.length; i++) {
+                workers[i].startY = (int) ((long) height * i / workers.length);
+                workers[i].endY = (int) ((long) height * (i + 1) / workers.length);
+            }
+        }
+        // A view onto the image's own array can be kept for as long as the same image comes back
+        // (e.g. a decoder reading into one reused image); a copied view has to be taken again.
+        if (original != lastInput || !PixelBuffer.readsInPlace(original)) {
+            lastPixels = PixelBuffer.wrap(original);
+            lastInput = original;
+        }
+        pixels = lastPixels;
+        target = outputPixels;
+    }
+
+    // Starts the next phase on every worker and waits until all of them are done with it.
+    private void runPhase(boolean apply) {
+        applyPhase = apply;
+        busyWorkers.set(workers.length);
+        phase++; // Only this thread writes phase; the volatile write publishes everything set before it.
+        for (Worker worker : workers) {
+            LockSupport.unpark(worker);
+        }
+        boolean interrupted = false;
+        while (busyWorkers.get() != 0) {
+            // A worker that sees the shutdown before the new phase exits without counting down.
+            if (!running) {
+                if (interrupted) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new IllegalStateException("The context was shut down during equalize()");
+            }
+            // park() returns at once while the interrupt flag is set, so I clear it instead of spinning.
+            // The workers still use this image, so the phase is waited out (one stripe each) before failing.
+            if (Thread.interrupted()) {
+                interrupted = true;
+                continue;
+            }
+            LockSupport.park(this);
+        }
+        // The workers may finish before the loop ever looks at the flag, so it is checked once more here.
+        if (interrupted || Thread.interrupted()) {
+            workerFailure = null;
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted during equalize()");
+        }
+        Throwable failure = workerFailure;
+        if (failure != null) {
+            workerFailure = null;
+            throw new IllegalStateException("An equalizer worker failed", failure);
+        }
+    }
+
+    private void record(EqualizerListener.Stage stage, long nanos) {
+        lastStageNanos[stage.ordinal()] = nanos;
+        totalStageNanos[stage.ordinal()] += nanos;
+        listener.stageCompleted(stage, nanos);
+    }
+
+    /**
+     * A long-lived worker that owns one horizontal stripe of the image and its sub-histograms.
+     */
+    private final class Worker extends Thread {
+        final int[][] subHistograms = new int[3][256];
+        int startY; // Rows [startY, endY); written by the caller before it bumps phase
+        int endY;
+
+        Worker(String name) {
+            super(name);
+            setDaemon(true); // An idle context shouldn't keep the JVM alive.
+        }
+
+        @Override
+        public void run() {
+            int seenPhase = 0;
+            while (true) {
+                while (running && phase == seenPhase) {
+                    LockSupport.park(this);
+                }
+                if (!running) {
+                    return;
+                }
+                seenPhase = phase;
+                try {
+                    if (!applyPhase) {
+                        for (int channel = 0; channel < 3; channel++) {
+                            Arrays.fill(subHistograms[channel], 0);
+                        }
+                        pixels.accumulate(startY, endY, subHistograms[0], subHistograms[1], subHistograms[2]);
+                    } else {
+                        pixels.apply(startY, endY, lookupTables[0], lookupTables[1], lookupTables[2], target);
+                    }
+                } catch (Throwable e) {
+                    workerFailure = e; // Reported by the caller once every worker is done.
+                }
+                if (busyWorkers.decrementAndGet() == 0) {
+                    LockSupport.unpark(caller);
+                }
+            }
+        }
+    }
+}
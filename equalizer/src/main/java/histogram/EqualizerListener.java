@@ -0,0 +1,44 @@
+package histogram;
+
+/**
+ * Receives the per-stage timings of an EqualizerContext, e.g. to export them to monitoring.
+ * The methods are called on the thread that called equalize(), after the image is finished,
+ * so a slow listener doesn't show up in the stage timings. Only primitives are passed,
+ * which keeps the hot path free of allocations.
+ */
+public interface EqualizerListener {
+
+    /** Does nothing; used when no listener is set. */
+    EqualizerListener NONE = new EqualizerListener() {
+    };
+
+    /**
+     * The stages of one equalization, in the order they run.
+     */
+    enum Stage {
+        PREPARE,      // Wrapping the input (a full copy for types read through getRGB) and sizing the output
+        HISTOGRAM,    // Every worker counts the pixels of its own rows
+        MERGE,        // The workers' histograms are summed into one per channel
+        LOOKUP_TABLE, // CDF and lookup table of each channel
+        APPLY         // Every worker maps its own rows into the output buffer
+    }
+
+    /**
+     * Called once per stage for every image.
+     *
+     * @param stage The stage that finished.
+     * @param nanos How long the stage took (wall clock).
+     */
+    default void stageCompleted(Stage stage, long nanos) {
+    }
+
+    /**
+     * Called after the stages of an image have been reported.
+     *
+     * @param width The image width.
+     * @param height The image height.
+     * @param totalNanos How long the whole equalize() call took.
+     */
+    default void imageCompleted(int width, int height, long totalNanos) {
+    }
+}
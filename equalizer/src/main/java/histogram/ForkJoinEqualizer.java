@@ -0,0 +1,142 @@
+package histogram;
+
+import java.awt.image.BufferedImage; // For image manipulation
+import java.util.concurrent.ForkJoinPool;    // Work-stealing pool shared by all calls
+import java.util.concurrent.RecursiveAction; // Apply step, nothing to return
+import java.util.concurrent.RecursiveTask;   // Histogram step, returns the merged histograms
+
+/**
+ * Histogram equalization on a work-stealing ForkJoinPool.
+ * The image is split recursively into row tiles: the histogram step merges the tiles'
+ * histograms on the way back up, and the apply step maps the tiles in parallel as well.
+ * The pool lives as long as this object, so no threads are created per call.
+ */
+public class ForkJoinEqualizer {
+    // A leaf tile should hold roughly this many pixels; smaller tiles cost more in task overhead than they gain.
+    private static final int PIXELS_PER_TILE = 1 << 15;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Creates an equalizer with its own pool.
+     * @param parallelism The number of worker threads in the pool.
+     */
+    public ForkJoinEqualizer(int parallelism) {
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    /**
+     * Equalizes the R, G and B channels of the image using the pool's workers.
+     * The output is identical to RasterEqualizer.equalize.
+     *
+     * @param original The input image.
+     * @return The equalized image (TYPE_INT_RGB).
+     */
+    public BufferedImage equalize(BufferedImage original) {
+        int width = original.getWidth();
+        int height = original.getHeight();
+        PixelBuffer pixels = PixelBuffer.wrap(original);
+        int rowsPerTile = Math.max(1, PIXELS_PER_TILE / Math.max(1, width));
+
+        // Step 1: Per-tile histograms, merged pairwise as the recursion unwinds.
+        int[][] histograms = pool.invoke(new HistogramTask(pixels, 0, height, rowsPerTile));
+
+        // Step 2: Lookup tables for the three channels (cheap, done on the calling thread).
+        long totalPixels = (long) width * height;
+        int[] redLut = HistogramEqualizer.buildLookupTable(histograms[0], totalPixels);
+        int[] greenLut = HistogramEqualizer.buildLookupTable(histograms[1], totalPixels);
+        int[] blueLut = HistogramEqualizer.buildLookupTable(histograms[2], totalPixels);
+
+        // Step 3: Mapping the pixels, again split into row tiles so every worker takes part.
+        BufferedImage resultImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        pool.invoke(new ApplyTask(pixels, 0, height, rowsPerTile,
+                redLut, greenLut, blueLut, PixelBuffer.dataOf(resultImage)));
+        return resultImage;
+    }
+
+    /**
+     * Stops the pool's workers. The equalizer can't be used afterwards.
+     */
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Builds the R, G, B histograms of rows [startY, endY), splitting until a tile is small enough.
+     */
+    private static final class HistogramTask extends RecursiveTask<int[][]> {
+        private final PixelBuffer pixels;
+        private final int startY;
+        private final int endY;
+        private final int rowsPerTile;
+
+        HistogramTask(PixelBuffer pixels, int startY, int endY, int rowsPerTile) {
+            this.pixels = pixels;
+            this.startY = startY;
+            this.endY = endY;
+            this.rowsPerTile = rowsPerTile;
+        }
+
+        @Override
+        protected int[][] compute() {
+            if (endY - startY <= rowsPerTile) {
+                int[][] histograms = new int[3][256];
+                pixels.accumulate(startY, endY, histograms[0], histograms[1], histograms[2]);
+                return histograms;
+            }
+            int middleY = (startY + endY) >>> 1;
+            HistogramTask top = new HistogramTask(pixels, startY, middleY, rowsPerTile);
+            top.fork(); // Another worker can steal this half.
+            int[][] merged = new HistogramTask(pixels, middleY, endY, rowsPerTile).compute();
+            int[][] topHistograms = top.join();
+            // Reduce step: summing the two halves into one set of histograms.
+            for (int channel = 0; channel < 3; channel++) {
+                for (int i = 0; i < 256; i++) {
+                    merged[channel][i] += topHistograms[channel][i];
+                }
+            }
+            return merged;
+        }
+    }
+
+    /**
+     * Applies the lookup tables to rows [startY, endY). Tiles write disjoint rows, so no locking is needed.
+     */
+    private static final class ApplyTask extends RecursiveAction {
+        private final PixelBuffer pixels;
+        private final int startY;
+        private final int endY;
+        private final int rowsPerTile;
+        private final int[] redLut;
+        private final int[] greenLut;
+        private final int[] blueLut;
+        private final int[] target;
+
+        ApplyTask(PixelBuffer pixels, int startY, int endY, int rowsPerTile,
+                  int[] redLut, int[] greenLut, int[] blueLut, int[] target) {
+            this.pixels = pixels;
+            this.startY = startY;
+            this.endY = endY;
+            this.rowsPerTile = rowsPerTile;
+            this.redLut = redLut;
+            this.greenLut = greenLut;
+            this.blueLut = blueLut;
+            this.target = target;
+        }
+
+        @Override
+        protected void compute() {
+            if (endY - startY <= rowsPerTile) {
+                pixels.apply(startY, endY, redLut, greenLut, blueLut, target);
+                return;
+            }
+            int middleY = (startY + endY) >>> 1;
+            invokeAll(new ApplyTask(pixels, startY, middleY, rowsPerTile, redLut, greenLut, blueLut, target),
+                    new ApplyTask(pixels, middleY, endY, rowsPerTile, redLut, greenLut, blueLut, target));
+        }
+    }
+}
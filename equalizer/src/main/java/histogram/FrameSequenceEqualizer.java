@@ -0,0 +1,243 @@
+package histogram;
+
+import java.awt.image.BufferedImage; // For image manipulation
+import java.util.Arrays;
+
+/**
+ * Stateful histogram equalization for a sequence of video frames.
+ * Instead of equalizing every frame on its own histogram (which flickers), it keeps running
+ * channel histograms across frames, either with exponential decay or over a sliding window
+ * of the last N frames, and only rebuilds the lookup tables when those histograms have moved
+ * more than a threshold since the tables were last built.
+ * Frame histograms can be built from a sparse sample of the pixels to make them cheaper still.
+ *
+ * One instance handles one sequence and is not thread-safe. A frame of a different size
+ * starts a new sequence.
+ */
+public class FrameSequenceEqualizer {
+    private final boolean slidingWindow;   // true: window of windowSize frames; false: exponential decay
+    private final double newFrameWeight;   // Decay mode: how much the newest frame counts (0-1]
+    private final int windowSize;          // Window mode: how many frames are averaged
+    private final double rebuildThreshold; // CDF change (0-1) needed before the tables are rebuilt
+    private final int sampleStep;          // 1 = every pixel, k = every k-th pixel of every k-th row
+
+    private final double[][] running = new double[3][256];   // The histograms the tables are built from
+    private final double[][] atLastBuild = new double[3][256]; // Snapshot taken when the tables were built
+    private final int[][] frameHistograms = new int[3][256];
+    private final int[][] window;  // Window mode: per-frame histograms, one row per channel per slot
+    private int windowNext;        // Window mode: the slot the next frame goes into
+    private int windowFilled;      // Window mode: how many slots hold a frame
+
+    private int[][] lookupTables;  // null until the first frame
+    private int frameWidth = -1;
+    private int frameHeight = -1;
+    private long framesProcessed;
+    private long tableRebuilds;
+    private boolean lastFrameReusedTables;
+
+    private FrameSequenceEqualizer(boolean slidingWindow, double newFrameWeight, int windowSize,
+                                   double rebuildThreshold, int sampleStep) {
+        if (rebuildThreshold < 0 || rebuildThreshold > 1) {
+            throw new IllegalArgumentException("rebuildThreshold must be between 0 and 1: " + rebuildThreshold);
+        }
+        if (sampleStep < 1) {
+            throw new IllegalArgumentException("sampleStep must be at least 1: " + sampleStep);
+        }
+        this.slidingWindow = slidingWindow;
+        this.newFrameWeight = newFrameWeight;
+        this.windowSize = windowSize;
+        this.rebuildThreshold = rebuildThreshold;
+        this.sampleStep = sampleStep;
+        this.window = slidingWindow ? new int[windowSize * 3][256] : null;
+    }
+
+    /**
+     * Running histograms with exponential decay: running = (1 - w) * running + w * frame.
+     *
+     * @param newFrameWeight The weight w of the newest frame, in (0, 1]; 1 means no smoothing.
+     * @param rebuildThreshold The histogram change (largest CDF difference, 0-1) that triggers new tables; 0 rebuilds every frame.
+     * @param sampleStep The pixel sampling step used for frame histograms; 1 counts every pixel.
+     */
+    public static FrameSequenceEqualizer withDecay(double newFrameWeight, double rebuildThreshold, int sampleStep) {
+        if (!(newFrameWeight > 0 && newFrameWeight <= 1)) {
+            throw new IllegalArgumentException("newFrameWeight must be in (0, 1]: " + newFrameWeight);
+        }
+        return new FrameSequenceEqualizer(false, newFrameWeight, 0, rebuildThreshold, sampleStep);
+    }
+
+    /**
+     * Running histograms summed over the last windowSize frames.
+     *
+     * @param windowSize The number of frames in the window; 1 means no smoothing.
+     * @param rebuildThreshold The histogram change (largest CDF difference, 0-1) that triggers new tables; 0 rebuilds every frame.
+     * @param sampleStep The pixel sampling step used for frame histograms; 1 counts every pixel.
+     */
+    public static FrameSequenceEqualizer withWindow(int windowSize, double rebuildThreshold, int sampleStep) {
+        if (windowSize < 1) {
+            throw new IllegalArgumentException("windowSize must be at least 1: " + windowSize);
+        }
+        return new FrameSequenceEqualizer(true, 0, windowSize, rebuildThreshold, sampleStep);
+    }
+
+    /**
+     * Equalizes the next frame of the sequence.
+     * With a window of 1 (or a decay weight of 1), a sample step of 1 and a threshold of 0,
+     * every frame comes out exactly as RasterEqualizer.equalize would produce it.
+     *
+     * @param frame The next frame.
+     * @return The equalized frame (TYPE_INT_RGB).
+     */
+    public BufferedImage equalize(BufferedImage frame) {
+        int width = frame.getWidth();
+        int height = frame.getHeight();
+        if (width != frameWidth || height != frameHeight) {
+            reset();
+            frameWidth = width;
+            frameHeight = height;
+        }
+        PixelBuffer pixels = PixelBuffer.wrap(frame);
+
+        // Step 1: This frame's histograms, from every pixel or from a sample that shifts each frame.
+        // The x offset cycles fastest and the y offset steps once per x cycle, so over
+        // sampleStep^2 frames every offset of the sample grid is visited, not just the diagonal.
+        for (int channel = 0; channel < 3; channel++) {
+            Arrays.fill(frameHistograms[channel], 0);
+        }
+        int phaseX = (int) (framesProcessed % sampleStep);
+        int phaseY = (int) ((framesProcessed / sampleStep) % sampleStep);
+        if (sampleStep == 1 || phaseX >= width || phaseY >= height) {
+            // A frame narrower or shorter than the offset would give an empty sample; it's tiny, so count it all.
+            pixels.accumulate(0, height, frameHistograms[0], frameHistograms[1], frameHistograms[2]);
+        } else {
+            pixels.accumulateSampled(sampleStep, phaseX, phaseY, frameHistograms[0], frameHistograms[1], frameHistograms[2]);
+        }
+
+        // Step 2: Folding them into the running histograms.
+        if (slidingWindow) {
+            addToWindow();
+        } else {
+            addWithDecay();
+        }
+
+        // Step 3: New tables only if the running histograms moved far enough since the last build.
+        lastFrameReusedTables = lookupTables != null && distanceSinceLastBuild() < rebuildThreshold;
+        if (!lastFrameReusedTables) {
+            lookupTables = new int[3][];
+            for (int channel = 0; channel < 3; channel++) {
+                lookupTables[channel] = buildLookupTable(running[channel]);
+                System.arraycopy(running[channel], 0, atLastBuild[channel], 0, 256);
+            }
+            tableRebuilds++;
+        }
+        framesProcessed++;
+
+        // Step 4: Mapping the full frame.
+        BufferedImage resultImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        pixels.apply(0, height, lookupTables[0], lookupTables[1], lookupTables[2], PixelBuffer.dataOf(resultImage));
+        return resultImage;
+    }
+
+    /**
+     * Forgets all history, e.g. at a scene cut. The next frame starts a new sequence.
+     */
+    public void reset() {
+        for (int channel = 0; channel < 3; channel++) {
+            Arrays.fill(running[channel], 0);
+            Arrays.fill(atLastBuild[channel], 0);
+        }
+        windowNext = 0;
+        windowFilled = 0;
+        lookupTables = null;
+        frameWidth = -1;
+        frameHeight = -1;
+    }
+
+    public long getFramesProcessed() {
+        return framesProcessed;
+    }
+
+    /** How many frames needed new lookup tables; the rest reused the previous ones. */
+    public long getTableRebuilds() {
+        return tableRebuilds;
+    }
+
+    public boolean lastFrameReusedTables() {
+        return lastFrameReusedTables;
+    }
+
+    private void addWithDecay() {
+        boolean firstFrame = lookupTables == null;
+        double keep = firstFrame ? 0 : 1 - newFrameWeight;
+        double add = firstFrame ? 1 : newFrameWeight;
+        for (int channel = 0; channel < 3; channel++) {
+            double[] histogram = running[channel];
+            int[] counts = frameHistograms[channel];
+            for (int i = 0; i < 256; i++) {
+                histogram[i] = keep * histogram[i] + add * counts[i];
+            }
+        }
+    }
+
+    private void addToWindow() {
+        // The slot being overwritten holds the oldest frame, which leaves the window now.
+        for (int channel = 0; channel < 3; channel++) {
+            int[] slot = window[windowNext * 3 + channel];
+            double[] histogram = running[channel];
+            int[] counts = frameHistograms[channel];
+            for (int i = 0; i < 256; i++) {
+                if (windowFilled == windowSize) {
+                    histogram[i] -= slot[i];
+                }
+                histogram[i] += counts[i];
+                slot[i] = counts[i];
+            }
+        }
+        windowNext = (windowNext + 1) % windowSize;
+        if (windowFilled < windowSize) {
+            windowFilled++;
+        }
+    }
+
+    // Largest difference, over all channels and intensities, between the normalized CDFs of the
+    // current running histograms and of the ones the tables were built from. The tables are
+    // scaled CDFs, so this is roughly the largest change of any table entry divided by 255.
+    private double distanceSinceLastBuild() {
+        double largest = 0;
+        for (int channel = 0; channel < 3; channel++) {
+            double[] now = running[channel];
+            double[] then = atLastBuild[channel];
+            double nowTotal = 0;
+            double thenTotal = 0;
+            for (int i = 0; i < 256; i++) {
+                nowTotal += now[i];
+                thenTotal += then[i];
+            }
+            double nowCdf = 0;
+            double thenCdf = 0;
+            for (int i = 0; i < 256; i++) {
+                nowCdf += now[i];
+                thenCdf += then[i];
+                largest = Math.max(largest, Math.abs(nowCdf / nowTotal - thenCdf / thenTotal));
+            }
+        }
+        return largest;
+    }
+
+    // The usual CDF formula, on (possibly fractional) running counts.
+    private static int[] buildLookupTable(double[] histogram) {
+        double[] cdf = new double[256];
+        cdf[0] = histogram[0];
+        for (int i = 1; i < 256; i++) {
+            cdf[i] = cdf[i - 1] + histogram[i];
+        }
+        double totalPixels = cdf[255];
+        int maxIntensity = 255;
+        int[] lookupTable = new int[256];
+        for (int i = 0; i < 256; i++) {
+            lookupTable[i] = (int) (((cdf[i] - cdf[0]) / (totalPixels - cdf[0])) * maxIntensity);
+            if (lookupTable[i] < 0) lookupTable[i] = 0;
+            if (lookupTable[i] > maxIntensity) lookupTable[i] = maxIntensity;
+        }
+        return lookupTable;
+    }
+}
@@ -1,7 +1,7 @@
 package histogram;
 
 import java.awt.image.BufferedImage; // For image manipulation
-import java.util.concurrent.atomic.AtomicIntegerArray; // Needed for the shared atomic histogram
+import java.util.concurrent.CyclicBarrier; // Lets the lock-free channel threads meet between phases
 
 public class HistogramEqualizer {
 
@@ -51,10 +51,13 @@ public class HistogramEqualizer {
             }
 
             // Step 4: Applying the lookup table to transform the image pixels.
+            // After the first channel I read back from the result image, otherwise every pass
+            // would overwrite the channels equalized before it with the original values.
+            BufferedImage applySource = (channel == 0) ? original : resultImage;
             for (int y = 0; y < height; y++) {
                 for (int x = 0; x < width; x++) {
-                    int originalRGB = original.getRGB(x, y);
-                    // Getting existing R, G, B components from the original pixel.
+                    int originalRGB = applySource.getRGB(x, y);
+                    // Getting existing R, G, B components from the current pixel.
                     int r = (originalRGB >> 16) & 0xFF;
                     int g = (originalRGB >> 8) & 0xFF;
                     int b = originalRGB & 0xFF;
@@ -74,6 +77,55 @@ public class HistogramEqualizer {
         return resultImage; // Returning the fully equalized image.
     }
 
+    /**
+     * Turns the histogram of one channel into its equalization lookup table.
+     * This is the same CDF formula used by the methods in this class, kept in one place
+     * so the newer engines all produce identical mappings.
+     *
+     * @param histogram The 256-bin histogram of the channel.
+     * @param totalPixels The number of pixels counted in the histogram.
+     * @return The lookup table mapping old intensities to equalized ones.
+     */
+    static int[] buildLookupTable(int[] histogram, long totalPixels) {
+        long[] counts = new long[256];
+        for (int i = 0; i < 256; i++) {
+            counts[i] = histogram[i];
+        }
+        return buildLookupTable(counts, totalPixels);
+    }
+
+    /**
+     * Same as above for histograms whose bins may exceed the int range (images over 2^31 pixels).
+     */
+    static int[] buildLookupTable(long[] histogram, long totalPixels) {
+        int[] lookupTable = new int[256];
+        buildLookupTable(histogram, totalPixels, new long[256], lookupTable);
+        return lookupTable;
+    }
+
+    /**
+     * Same as above, but writes into buffers owned by the caller so nothing is allocated.
+     *
+     * @param histogram The 256-bin histogram of the channel.
+     * @param totalPixels The number of pixels counted in the histogram.
+     * @param cdf A 256-entry scratch array for the cumulative counts.
+     * @param lookupTable The 256-entry array that receives the lookup table.
+     */
+    static void buildLookupTable(long[] histogram, long totalPixels, long[] cdf, int[] lookupTable) {
+        // Cumulative counts are kept as long so very large images don't overflow.
+        cdf[0] = histogram[0];
+        for (int i = 1; i < 256; i++) {
+            cdf[i] = cdf[i - 1] + histogram[i];
+        }
+
+        int maxIntensity = 255;
+        for (int i = 0; i < 256; i++) {
+            lookupTable[i] = (int) (((double)(cdf[i] - cdf[0]) / (totalPixels - cdf[0])) * maxIntensity);
+            if (lookupTable[i] < 0) lookupTable[i] = 0;
+            if (lookupTable[i] > maxIntensity) lookupTable[i] = maxIntensity;
+        }
+    }
+
     /**
      * Performs histogram equalization using multiple threads.
      * Current design: Each thread processes a separate color channel (R, G, B).
@@ -100,6 +152,51 @@ public class HistogramEqualizer {
         return resultImage; // Returning the result after all threads are done.
     }
 
+    /**
+     * Channel-based multi-threading without any locks.
+     * Each of the 3 threads builds the lookup table of its own channel, then all threads wait
+     * at a barrier and each one writes its own stripe of rows with all three channels applied.
+     * Writes never overlap, so unlike equalizeMultiThread no pixel needs to be synchronized.
+     *
+     * @param original The input image.
+     * @return The equalized BufferedImage.
+     * @throws InterruptedException If a thread is interrupted.
+     * @throws IllegalStateException If a channel thread failed to build its lookup table.
+     */
+    public static BufferedImage equalizeMultiThreadLockFree(BufferedImage original) throws InterruptedException {
+        BufferedImage resultImage = new BufferedImage(original.getWidth(), original.getHeight(), BufferedImage.TYPE_INT_RGB);
+        PixelBuffer pixels = PixelBuffer.wrap(original);
+        int[] target = PixelBuffer.dataOf(resultImage);
+
+        // Shared by the threads: slot i is only ever written by the thread for channel i.
+        int[][] lookupTables = new int[3][];
+        CyclicBarrier tablesReady = new CyclicBarrier(3);
+
+        ChannelStripeThread[] workerThreads = new ChannelStripeThread[3];
+        for (int i = 0; i < 3; i++) {
+            workerThreads[i] = new ChannelStripeThread(pixels, i, 3, lookupTables, tablesReady, target);
+            workerThreads[i].start();
+        }
+
+        // Waiting for all threads to finish their stripes.
+        for (int i = 0; i < 3; i++) {
+            workerThreads[i].join();
+        }
+        // A thread that failed or was interrupted left its stripe black, so the image is unusable.
+        for (int i = 0; i < 3; i++) {
+            if (workerThreads[i].getFailure() != null) {
+                throw new IllegalStateException("Channel thread " + i + " failed", workerThreads[i].getFailure());
+            }
+        }
+        for (int i = 0; i < 3; i++) {
+            if (!workerThreads[i].isStripeWritten()) {
+                throw new InterruptedException("Channel thread " + i + " was interrupted before writing its stripe");
+            }
+        }
+
+        return resultImage;
+    }
+
     /**
      * Performs histogram equalization using multiple threads,
      * where all threads contribute to a single, shared (atomic) histogram array.
@@ -111,13 +208,27 @@ public class HistogramEqualizer {
      * @throws InterruptedException If a thread is interrupted.
      */
     public static BufferedImage equalizeMultiThreadSharedAtomic(BufferedImage original, int numOfThreads) throws InterruptedException {
+        return equalizeMultiThreadSharedAtomic(original, numOfThreads, new AtomicSharedHistogram());
+    }
+
+    /**
+     * Same as equalizeMultiThreadSharedAtomic above, but with a choice of how the shared histogram
+     * is implemented (plain atomic array, striped counters, or thread-local batches).
+     *
+     * @param original The input image.
+     * @param numOfThreads The number of threads to use for histogram calculation.
+     * @param sharedHistogram The histogram all threads count into; it is reset for every channel.
+     * @return The equalized BufferedImage.
+     * @throws InterruptedException If a thread is interrupted.
+     */
+    public static BufferedImage equalizeMultiThreadSharedAtomic(BufferedImage original, int numOfThreads,
+                                                               SharedHistogram sharedHistogram) throws InterruptedException {
         BufferedImage resultImage = new BufferedImage(original.getWidth(), original.getHeight(), BufferedImage.TYPE_INT_RGB);
-        
-        // This is the single, shared histogram for all threads. Using AtomicIntegerArray for thread-safe updates.
-        AtomicIntegerArray sharedHistogram = new AtomicIntegerArray(256); 
+        PixelBuffer pixels = PixelBuffer.wrap(original);
 
         int height = original.getHeight();
         Thread[] workerThreads = new Thread[numOfThreads];
+        int[][] lookupTables = new int[3][];
 
         // Figuring out how many rows each thread will process.
         int rowsPerThread = height / numOfThreads;
@@ -125,15 +236,13 @@ public class HistogramEqualizer {
         // I'm processing each channel (R, G, B) one after another, but the histogram collection for each channel is parallelized.
         for (int channel = 0; channel < 3; channel++) { 
             // Clearing the shared histogram for the new channel's calculation.
-            for(int i = 0; i < 256; i++) {
-                sharedHistogram.set(i, 0); 
-            }
+            sharedHistogram.reset();
 
             // Creating and starting threads to build the shared histogram for the current channel.
             for (int i = 0; i < numOfThreads; i++) {
                 int startY = i * rowsPerThread;
                 int endY = (i == numOfThreads - 1) ? height : (i + 1) * rowsPerThread;
-                workerThreads[i] = new SharedHistogramThread(original, sharedHistogram, startY, endY, channel);
+                workerThreads[i] = new SharedHistogramThread(pixels, sharedHistogram, startY, endY, channel);
                 workerThreads[i].start();
             }
 
@@ -143,47 +252,14 @@ public class HistogramEqualizer {
             }
 
             // Now that all threads are done, the 'sharedHistogram' has the complete histogram for this channel.
-            // Copying it to a regular int[] to perform CDF calculations.
+            // Copying it to a regular int[] to build this channel's lookup table.
             int[] finalHistogram = new int[256];
-            for(int i = 0; i < 256; i++) {
-                finalHistogram[i] = sharedHistogram.get(i);
-            }
-
-            // Step 2: Calculating the Cumulative Distribution Function (CDF).
-            int[] cdf = new int[256];
-            cdf[0] = finalHistogram[0];
-            for (int i = 1; i < 256; i++) {
-                cdf[i] = cdf[i - 1] + finalHistogram[i];
-            }
-
-            // Step 3: Creating the lookup table for equalization.
-            int maxIntensity = 255;
-            int totalPixels = original.getWidth() * original.getHeight();
-            int[] lookupTable = new int[256];
-            for (int i = 0; i < 256; i++) {
-                lookupTable[i] = (int) (((double)(cdf[i] - cdf[0]) / (totalPixels - cdf[0])) * maxIntensity);
-                if (lookupTable[i] < 0) lookupTable[i] = 0;
-                if (lookupTable[i] > maxIntensity) lookupTable[i] = maxIntensity;
-            }
-
-            // Applying the lookup table to transform the image pixels for the current channel.
-            // This part is done sequentially after the parallel histogram build for simplicity.
-            for (int y = 0; y < height; y++) {
-                for (int x = 0; x < original.getWidth(); x++) {
-                    int originalRGB = original.getRGB(x, y);
-                    int r = (originalRGB >> 16) & 0xFF;
-                    int g = (originalRGB >> 8) & 0xFF;
-                    int b = originalRGB & 0xFF;
-
-                    if (channel == 0) r = lookupTable[r];
-                    else if (channel == 1) g = lookupTable[g];
-                    else if (channel == 2) b = lookupTable[b];
-
-                    int newRGB = (r << 16) | (g << 8) | b;
-                    resultImage.setRGB(x, y, newRGB);
-                }
-            }
+            sharedHistogram.copyTo(finalHistogram);
+            lookupTables[channel] = buildLookupTable(finalHistogram, (long) original.getWidth() * height);
         }
+
+        // Applying all three lookup tables in one pass, so every pixel gets its equalized R, G and B together.
+        pixels.apply(0, height, lookupTables[0], lookupTables[1], lookupTables[2], PixelBuffer.dataOf(resultImage));
         return resultImage;
     }
 
@@ -202,6 +278,7 @@ public class HistogramEqualizer {
         
         int height = original.getHeight();
         SubHistogramThread[] workerThreads = new SubHistogramThread[numOfThreads];
+        int[][] lookupTables = new int[3][];
         
         // Figuring out how many rows each thread gets.
         int rowsPerThread = height / numOfThreads;
@@ -230,39 +307,19 @@ public class HistogramEqualizer {
                 }
             }
 
-            // Step 3: Calculating the Cumulative Distribution Function (CDF).
-            int[] cdf = new int[256];
-            cdf[0] = finalHistogram[0];
-            for (int i = 1; i < 256; i++) {
-                cdf[i] = cdf[i - 1] + cdf[i]; // Bug fixed: should be cdf[i-1] + finalHistogram[i]
-                cdf[i] = cdf[i - 1] + finalHistogram[i]; // Corrected line
-            }
-
-            // Step 4: Creating the lookup table for equalization.
-            int maxIntensity = 255;
-            int totalPixels = original.getWidth() * original.getHeight();
-            int[] lookupTable = new int[256];
-            for (int i = 0; i < 256; i++) {
-                lookupTable[i] = (int) (((double)(cdf[i] - cdf[0]) / (totalPixels - cdf[0])) * maxIntensity);
-                if (lookupTable[i] < 0) lookupTable[i] = 0;
-                if (lookupTable[i] > maxIntensity) lookupTable[i] = maxIntensity;
-            }
-
-            // Step 5: Applying the lookup table to transform the image pixels.
-            for (int y = 0; y < height; y++) {
-                for (int x = 0; x < original.getWidth(); x++) {
-                    int originalRGB = original.getRGB(x, y);
-                    int r = (originalRGB >> 16) & 0xFF;
-                    int g = (originalRGB >> 8) & 0xFF;
-                    int b = originalRGB & 0xFF;
-
-                    if (channel == 0) r = lookupTable[r];
-                    else if (channel == 1) g = lookupTable[g];
-                    else if (channel == 2) b = lookupTable[b];
+            // Step 3: CDF and lookup table for this channel.
+            lookupTables[channel] = buildLookupTable(finalHistogram, (long) original.getWidth() * height);
+        }
 
-                    int newRGB = (r << 16) | (g << 8) | b;
-                    resultImage.setRGB(x, y, newRGB);
-                }
+        // Step 4: Applying all three lookup tables in one pass. Doing it per channel from the original
+        // would overwrite the channels equalized before.
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < original.getWidth(); x++) {
+                int originalRGB = original.getRGB(x, y);
+                int r = lookupTables[0][(originalRGB >> 16) & 0xFF];
+                int g = lookupTables[1][(originalRGB >> 8) & 0xFF];
+                int b = lookupTables[2][originalRGB & 0xFF];
+                resultImage.setRGB(x, y, (r << 16) | (g << 8) | b);
             }
         }
         return resultImage;
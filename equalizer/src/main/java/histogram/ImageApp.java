@@ -0,0 +1,206 @@
+package histogram;
+
+import java.awt.image.BufferedImage; // Needed for working with images
+import javax.imageio.ImageIO;       // Needed for reading/writing image files
+import java.io.File;                 // Needed for file operations
+import java.io.IOException;          // Handles file-related errors
+
+public class ImageApp {
+    public static void main(String[] args) {
+        try {
+            // My image file, placed directly in the project root folder for easy access.
+            File input = new File("Rain_Tree.jpg");
+            
+            // --- Single-Thread Implementation ---
+            System.out.println("Starting image processing: " + input.getAbsolutePath());
+            System.out.println("\n--- Single-Thread ---");
+            BufferedImage originalImageSingle = ImageIO.read(input); // Load the image for this test
+            if (originalImageSingle == null) {
+                System.err.println("Error: Couldn't load the image for single-thread test. Check the path and file name (Rain_Tree.jpg).");
+                return;
+            }
+            long startTimeSingle = System.currentTimeMillis(); // Time how long it takes
+            BufferedImage singleThreadResult = HistogramEqualizer.equalizeSingleThread(originalImageSingle);
+            long endTimeSingle = System.currentTimeMillis();
+            // Save the single-threaded result
+            ImageIO.write(singleThreadResult, "jpg", new File("Equalized_Single.jpg"));
+            System.out.println("Single-thread equalization time: " + (endTimeSingle - startTimeSingle) + " ms");
+
+            // --- Multi-Thread Implementation (Channel-based) ---
+            System.out.println("\n--- Multi-Thread (Channel-based) ---");
+            BufferedImage originalImageChannel = ImageIO.read(input); // Load the image for this test
+            if (originalImageChannel == null) {
+                System.err.println("Error: Couldn't load the image for channel-based multi-thread test. Check the path and file name (Rain_Tree.jpg).");
+                return;
+            }
+            long startTimeChannel = System.currentTimeMillis(); // Time this version
+            // My multi-threaded version, where each color channel (R, G, B) gets its own thread.
+            BufferedImage multiThreadResult = HistogramEqualizer.equalizeMultiThread(originalImageChannel);
+            long endTimeChannel = System.currentTimeMillis();
+            // Save the multi-threaded result
+            ImageIO.write(multiThreadResult, "jpg", new File("Equalized_Multi_Channel.jpg"));
+            System.out.println("Multi-thread equalization time (Channel-based): " + (endTimeChannel - startTimeChannel) + " ms");
+
+
+            // --- Multi-Thread Implementation (Channel-based, lock-free) ---
+            System.out.println("\n--- Multi-Thread (Channel-based, lock-free) ---");
+            BufferedImage originalImageLockFree = ImageIO.read(input); // Load the image for this test
+            if (originalImageLockFree == null) {
+                System.err.println("Error: Couldn't load the image for lock-free channel test. Check the path and file name (Rain_Tree.jpg).");
+                return;
+            }
+            long startTimeLockFree = System.currentTimeMillis();
+            // Same 3 channel threads, but each one writes its own stripe of rows instead of locking every pixel.
+            BufferedImage lockFreeResult = HistogramEqualizer.equalizeMultiThreadLockFree(originalImageLockFree);
+            long endTimeLockFree = System.currentTimeMillis();
+            ImageIO.write(lockFreeResult, "jpg", new File("Equalized_Multi_Channel_LockFree.jpg"));
+            System.out.println("Multi-thread equalization time (Channel-based, lock-free): " + (endTimeLockFree - startTimeLockFree) + " ms");
+
+            // Throughput comparison of the two channel-based versions on the same image.
+            // A few warm-up rounds first so the JIT has compiled both before I start timing.
+            int warmUpRounds = 3;
+            int timedRounds = 5;
+            double megapixels = originalImageLockFree.getWidth() * (double) originalImageLockFree.getHeight() / 1_000_000.0;
+            for (int i = 0; i < warmUpRounds; i++) {
+                HistogramEqualizer.equalizeMultiThread(originalImageLockFree);
+                HistogramEqualizer.equalizeMultiThreadLockFree(originalImageLockFree);
+            }
+            long startTimeSynchronized = System.nanoTime();
+            for (int i = 0; i < timedRounds; i++) {
+                HistogramEqualizer.equalizeMultiThread(originalImageLockFree);
+            }
+            long synchronizedNanos = System.nanoTime() - startTimeSynchronized;
+            long startTimeLockFreeRounds = System.nanoTime();
+            for (int i = 0; i < timedRounds; i++) {
+                HistogramEqualizer.equalizeMultiThreadLockFree(originalImageLockFree);
+            }
+            long lockFreeNanos = System.nanoTime() - startTimeLockFreeRounds;
+            double synchronizedThroughput = megapixels * timedRounds / (synchronizedNanos / 1e9);
+            double lockFreeThroughput = megapixels * timedRounds / (lockFreeNanos / 1e9);
+            System.out.printf("Channel-based throughput: synchronized %.1f MP/s, lock-free %.1f MP/s (%.1fx)%n",
+                    synchronizedThroughput, lockFreeThroughput, lockFreeThroughput / synchronizedThroughput);
+            // The two versions differ in more than the lock, so the ratio isn't the cost of the lock alone.
+            System.out.println("Note: the synchronized version also uses getRGB/setRGB per pixel while the lock-free one"
+                    + " reads and writes the raster arrays directly; the ratio covers both differences, not just the lock.");
+
+
+            // --- Single-Thread Implementation (Raster, single pass) ---
+            System.out.println("\n--- Single-Thread (Raster) ---");
+            BufferedImage originalImageRaster = ImageIO.read(input); // Load the image for this test
+            if (originalImageRaster == null) {
+                System.err.println("Error: Couldn't load the image for raster single-thread test. Check the path and file name (Rain_Tree.jpg).");
+                return;
+            }
+            long startTimeRaster = System.currentTimeMillis();
+            // Reads the pixel array directly: one sweep for all histograms, one sweep to apply.
+            BufferedImage rasterResult = RasterEqualizer.equalize(originalImageRaster);
+            long endTimeRaster = System.currentTimeMillis();
+            ImageIO.write(rasterResult, "jpg", new File("Equalized_Raster.jpg"));
+            System.out.println("Single-thread equalization time (Raster): " + (endTimeRaster - startTimeRaster) + " ms");
+
+
+            // --- Multi-Thread Implementation (Shared Atomic Histogram) ---
+            System.out.println("\n--- Multi-Thread (Shared Atomic Histogram) ---");
+            // Test with different numbers of threads as required by the project
+            int[] threadCounts = {2, 4, 8}; // Example thread counts; adjust as needed for your analysis
+
+            for (int numThreads : threadCounts) {
+                BufferedImage originalImageAtomic = ImageIO.read(input); // Load the image for each test run
+                if (originalImageAtomic == null) {
+                    System.err.println("Error: Couldn't load the image for atomic multi-thread test. Check the path and file name (Rain_Tree.jpg).");
+                    return;
+                }
+                long startTimeAtomic = System.currentTimeMillis();
+                BufferedImage atomicResult = HistogramEqualizer.equalizeMultiThreadSharedAtomic(originalImageAtomic, numThreads);
+                long endTimeAtomic = System.currentTimeMillis();
+                ImageIO.write(atomicResult, "jpg", new File("Equalized_Atomic_" + numThreads + ".jpg"));
+                System.out.println("Multi-thread time (Atomic, " + numThreads + " threads): " + (endTimeAtomic - startTimeAtomic) + " ms");
+
+                // Same shared-histogram algorithm with the contention-free histogram implementations.
+                long startTimeStriped = System.currentTimeMillis();
+                BufferedImage stripedResult = HistogramEqualizer.equalizeMultiThreadSharedAtomic(originalImageAtomic, numThreads, new StripedSharedHistogram());
+                long endTimeStriped = System.currentTimeMillis();
+                ImageIO.write(stripedResult, "jpg", new File("Equalized_Striped_" + numThreads + ".jpg"));
+                System.out.println("Multi-thread time (Striped, " + numThreads + " threads): " + (endTimeStriped - startTimeStriped) + " ms");
+
+                long startTimeBatched = System.currentTimeMillis();
+                BufferedImage batchedResult = HistogramEqualizer.equalizeMultiThreadSharedAtomic(originalImageAtomic, numThreads, new BatchedSharedHistogram(4096, true));
+                long endTimeBatched = System.currentTimeMillis();
+                ImageIO.write(batchedResult, "jpg", new File("Equalized_Batched_" + numThreads + ".jpg"));
+                System.out.println("Multi-thread time (Batched, " + numThreads + " threads): " + (endTimeBatched - startTimeBatched) + " ms");
+            }
+
+
+            // --- Multi-Thread Implementation (Sub-Histograms) ---
+            System.out.println("\n--- Multi-Thread (Sub-Histograms) ---");
+            for (int numThreads : threadCounts) { // Reusing thread counts for consistency
+                BufferedImage originalImageSub = ImageIO.read(input); // Load the image for each test run
+                if (originalImageSub == null) {
+                    System.err.println("Error: Couldn't load the image for sub-histogram multi-thread test. Check the path and file name (Rain_Tree.jpg).");
+                    return;
+                }
+                long startTimeSub = System.currentTimeMillis();
+                BufferedImage subResult = HistogramEqualizer.equalizeMultiThreadSubHistograms(originalImageSub, numThreads);
+                long endTimeSub = System.currentTimeMillis();
+                ImageIO.write(subResult, "jpg", new File("Equalized_Sub_" + numThreads + ".jpg"));
+                System.out.println("Multi-thread time (Sub-Histograms, " + numThreads + " threads): " + (endTimeSub - startTimeSub) + " ms");
+            }
+
+
+            // --- Multi-Thread Implementation (Fork/Join) ---
+            System.out.println("\n--- Multi-Thread (Fork/Join) ---");
+            for (int numThreads : threadCounts) { // Reusing thread counts for consistency
+                BufferedImage originalImageForkJoin = ImageIO.read(input); // Load the image for each test run
+                if (originalImageForkJoin == null) {
+                    System.err.println("Error: Couldn't load the image for fork/join multi-thread test. Check the path and file name (Rain_Tree.jpg).");
+                    return;
+                }
+                // The pool is created once and reused, like a service would keep it for every image.
+                // A few warm-up calls first, so the timed call measures the warm pool rather than thread start-up and the JIT.
+                ForkJoinEqualizer forkJoinEqualizer = new ForkJoinEqualizer(numThreads);
+                int forkJoinWarmUps = 3;
+                for (int i = 0; i < forkJoinWarmUps; i++) {
+                    forkJoinEqualizer.equalize(originalImageForkJoin);
+                }
+                long startTimeForkJoin = System.currentTimeMillis();
+                BufferedImage forkJoinResult = forkJoinEqualizer.equalize(originalImageForkJoin);
+                long endTimeForkJoin = System.currentTimeMillis();
+                forkJoinEqualizer.shutdown();
+                ImageIO.write(forkJoinResult, "jpg", new File("Equalized_ForkJoin_" + numThreads + ".jpg"));
+                System.out.println("Multi-thread time (Fork/Join, " + numThreads + " threads): " + (endTimeForkJoin - startTimeForkJoin) + " ms");
+            }
+
+            // --- Multi-Thread Implementation (Reusable Context) ---
+            System.out.println("\n--- Multi-Thread (Reusable Context) ---");
+            BufferedImage originalImageContext = ImageIO.read(input);
+            if (originalImageContext == null) {
+                System.err.println("Error: Couldn't load the image for the reusable context test. Check the path and file name (Rain_Tree.jpg).");
+                return;
+            }
+            int contextRuns = 10; // The first run sizes the buffers; the rest show the steady state.
+            for (int numThreads : threadCounts) { // Reusing thread counts for consistency
+                // try-with-resources stops the context's worker threads when I'm done with it.
+                try (EqualizerContext context = new EqualizerContext(numThreads)) {
+                    BufferedImage contextResult = null;
+                    long startTimeContext = System.currentTimeMillis();
+                    for (int run = 0; run < contextRuns; run++) {
+                        contextResult = context.equalize(originalImageContext);
+                    }
+                    long endTimeContext = System.currentTimeMillis();
+                    ImageIO.write(contextResult, "jpg", new File("Equalized_Context_" + numThreads + ".jpg"));
+                    System.out.println("Multi-thread time (Context, " + numThreads + " threads): "
+                            + (endTimeContext - startTimeContext) / contextRuns + " ms per image");
+                    for (EqualizerListener.Stage stage : EqualizerListener.Stage.values()) {
+                        System.out.printf("  %-12s %8.3f ms per image%n", stage,
+                                context.getTotalStageNanos(stage) / 1_000_000.0 / contextRuns);
+                    }
+                }
+            }
+
+        } catch (IOException | InterruptedException e) {
+            // Catch any errors during file operations or thread interruptions
+            System.err.println("An error occurred during image processing:");
+            e.printStackTrace();
+        }
+    }
+}
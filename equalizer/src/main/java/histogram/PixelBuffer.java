@@ -0,0 +1,283 @@
+package histogram;
+
+import java.awt.image.BufferedImage;        // The image whose pixels I want to reach
+import java.awt.image.ComponentSampleModel;  // Layout description of the byte-based images
+import java.awt.image.DataBuffer;            // The storage behind a raster
+import java.awt.image.DataBufferByte;        // Byte storage (3BYTE_BGR)
+import java.awt.image.DataBufferInt;         // Packed int storage (INT_RGB, INT_ARGB)
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel; // Layout description of the packed int images
+
+/**
+ * A direct view of the array backing an image's raster.
+ * The engines sweep over this array instead of calling getRGB/setRGB for every pixel,
+ * which skips the colour model conversion and the per-pixel method call.
+ * Image types I don't read directly are copied once with the bulk getRGB call.
+ */
+final class PixelBuffer {
+    private final int width;
+    private final int height;
+    private final int[] packedPixels;  // Used for packed 0xRRGGBB pixels, null otherwise
+    private final byte[] bytePixels;   // Used for byte-interleaved pixels, null otherwise
+    private final int offset;          // Array index of pixel (0, 0)
+    private final int scanlineStride;  // Array elements from one row to the next
+    private final int pixelStride;     // Array elements from one pixel to the next (byte images only)
+    private final int redOffset;       // Position of each band inside a byte pixel
+    private final int greenOffset;
+    private final int blueOffset;
+
+    private PixelBuffer(int width, int height, int[] packedPixels, byte[] bytePixels, int offset,
+                        int scanlineStride, int pixelStride, int redOffset, int greenOffset, int blueOffset) {
+        this.width = width;
+        this.height = height;
+        this.packedPixels = packedPixels;
+        this.bytePixels = bytePixels;
+        this.offset = offset;
+        this.scanlineStride = scanlineStride;
+        this.pixelStride = pixelStride;
+        this.redOffset = redOffset;
+        this.greenOffset = greenOffset;
+        this.blueOffset = blueOffset;
+    }
+
+    /**
+     * Wraps the backing array of the image. INT_RGB, INT_ARGB and 3BYTE_BGR are read in place;
+     * any other type is converted once into packed RGB ints.
+     * BYTE_GRAY goes through the conversion too: getRGB maps its samples through the grey
+     * colour space, and the raw samples would give a different result than equalizeSingleThread.
+     */
+    static PixelBuffer wrap(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        Raster raster = image.getRaster();
+        DataBuffer dataBuffer = raster.getDataBuffer();
+        // Sub-images share the parent's array, so I need the translation to find pixel (0, 0).
+        int translateX = -raster.getSampleModelTranslateX();
+        int translateY = -raster.getSampleModelTranslateY();
+
+        switch (image.getType()) {
+            case BufferedImage.TYPE_INT_RGB:
+            case BufferedImage.TYPE_INT_ARGB: {
+                SinglePixelPackedSampleModel sampleModel = (SinglePixelPackedSampleModel) raster.getSampleModel();
+                int stride = sampleModel.getScanlineStride();
+                int start = dataBuffer.getOffset() + translateY * stride + translateX;
+                return new PixelBuffer(width, height, ((DataBufferInt) dataBuffer).getData(), null,
+                        start, stride, 1, 0, 0, 0);
+            }
+            case BufferedImage.TYPE_3BYTE_BGR: {
+                ComponentSampleModel sampleModel = (ComponentSampleModel) raster.getSampleModel();
+                int stride = sampleModel.getScanlineStride();
+                int step = sampleModel.getPixelStride();
+                int[] bandOffsets = sampleModel.getBandOffsets();
+                int start = dataBuffer.getOffset() + translateY * stride + translateX * step;
+                // 3BYTE_BGR stores the bands as R, G, B in the sample model (bytes B, G, R in memory).
+                return new PixelBuffer(width, height, null, ((DataBufferByte) dataBuffer).getData(),
+                        start, stride, step, bandOffsets[0], bandOffsets[1], bandOffsets[2]);
+            }
+            default: {
+                // One bulk conversion is still far cheaper than a getRGB call per pixel per channel.
+                int[] rgb = image.getRGB(0, 0, width, height, null, 0, width);
+                return new PixelBuffer(width, height, rgb, null, 0, width, 1, 0, 0, 0);
+            }
+        }
+    }
+
+    /**
+     * Whether wrap() reads this image's own array. If not, the view is a copy taken at wrap time.
+     */
+    static boolean readsInPlace(BufferedImage image) {
+        switch (image.getType()) {
+            case BufferedImage.TYPE_INT_RGB:
+            case BufferedImage.TYPE_INT_ARGB:
+            case BufferedImage.TYPE_3BYTE_BGR:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    /**
+     * Returns the pixel array of an image created as TYPE_INT_RGB by one of the engines.
+     */
+    static int[] dataOf(BufferedImage intRgbImage) {
+        return ((DataBufferInt) intRgbImage.getRaster().getDataBuffer()).getData();
+    }
+
+    int getWidth() {
+        return width;
+    }
+
+    int getHeight() {
+        return height;
+    }
+
+    /**
+     * Adds the pixels of rows [startY, endY) to the three channel histograms in one sweep.
+     */
+    void accumulate(int startY, int endY, int[] red, int[] green, int[] blue) {
+        if (packedPixels != null) {
+            int[] pixels = packedPixels;
+            for (int y = startY; y < endY; y++) {
+                int index = offset + y * scanlineStride;
+                int rowEnd = index + width;
+                for (; index < rowEnd; index++) {
+                    int rgb = pixels[index];
+                    red[(rgb >> 16) & 0xFF]++;
+                    green[(rgb >> 8) & 0xFF]++;
+                    blue[rgb & 0xFF]++;
+                }
+            }
+        } else {
+            byte[] pixels = bytePixels;
+            for (int y = startY; y < endY; y++) {
+                int index = offset + y * scanlineStride;
+                int rowEnd = index + width * pixelStride;
+                for (; index < rowEnd; index += pixelStride) {
+                    red[pixels[index + redOffset] & 0xFF]++;
+                    green[pixels[index + greenOffset] & 0xFF]++;
+                    blue[pixels[index + blueOffset] & 0xFF]++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the pixels of the region [startX, endX) x [startY, endY) to the three channel histograms.
+     */
+    void accumulate(int startX, int endX, int startY, int endY, int[] red, int[] green, int[] blue) {
+        for (int y = startY; y < endY; y++) {
+            if (packedPixels != null) {
+                int[] pixels = packedPixels;
+                int index = offset + y * scanlineStride + startX;
+                int rowEnd = offset + y * scanlineStride + endX;
+                for (; index < rowEnd; index++) {
+                    int rgb = pixels[index];
+                    red[(rgb >> 16) & 0xFF]++;
+                    green[(rgb >> 8) & 0xFF]++;
+                    blue[rgb & 0xFF]++;
+                }
+            } else {
+                byte[] pixels = bytePixels;
+                int index = offset + y * scanlineStride + startX * pixelStride;
+                int rowEnd = offset + y * scanlineStride + endX * pixelStride;
+                for (; index < rowEnd; index += pixelStride) {
+                    red[pixels[index + redOffset] & 0xFF]++;
+                    green[pixels[index + greenOffset] & 0xFF]++;
+                    blue[pixels[index + blueOffset] & 0xFF]++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies row y into rowRgb as packed 0xRRGGBB values, whatever the image's layout.
+     */
+    void readRow(int y, int[] rowRgb) {
+        if (packedPixels != null) {
+            int[] pixels = packedPixels;
+            int index = offset + y * scanlineStride;
+            for (int x = 0; x < width; x++) {
+                rowRgb[x] = pixels[index + x] & 0xFFFFFF;
+            }
+        } else {
+            byte[] pixels = bytePixels;
+            int index = offset + y * scanlineStride;
+            for (int x = 0; x < width; x++, index += pixelStride) {
+                rowRgb[x] = ((pixels[index + redOffset] & 0xFF) << 16)
+                        | ((pixels[index + greenOffset] & 0xFF) << 8)
+                        | (pixels[index + blueOffset] & 0xFF);
+            }
+        }
+    }
+
+    /**
+     * Adds a sparse sample of the pixels to the three channel histograms: every step-th pixel
+     * of every step-th row, starting at (phaseX, phaseY). Moving the two phases independently
+     * between calls covers all step * step offsets of the sample grid.
+     * Nothing is counted if phaseX >= width or phaseY >= height.
+     */
+    void accumulateSampled(int step, int phaseX, int phaseY, int[] red, int[] green, int[] blue) {
+        int startX = phaseX % step;
+        int startY = phaseY % step;
+        for (int y = startY; y < height; y += step) {
+            if (packedPixels != null) {
+                int[] pixels = packedPixels;
+                int index = offset + y * scanlineStride + startX;
+                int rowEnd = offset + y * scanlineStride + width;
+                for (; index < rowEnd; index += step) {
+                    int rgb = pixels[index];
+                    red[(rgb >> 16) & 0xFF]++;
+                    green[(rgb >> 8) & 0xFF]++;
+                    blue[rgb & 0xFF]++;
+                }
+            } else {
+                byte[] pixels = bytePixels;
+                int index = offset + y * scanlineStride + startX * pixelStride;
+                int rowEnd = offset + y * scanlineStride + width * pixelStride;
+                int jump = step * pixelStride;
+                for (; index < rowEnd; index += jump) {
+                    red[pixels[index + redOffset] & 0xFF]++;
+                    green[pixels[index + greenOffset] & 0xFF]++;
+                    blue[pixels[index + blueOffset] & 0xFF]++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the pixels of rows [startY, endY) to the histogram of a single channel (0=R, 1=G, 2=B).
+     */
+    void accumulateChannel(int startY, int endY, int channel, int[] histogram) {
+        if (packedPixels != null) {
+            int[] pixels = packedPixels;
+            int shift = 8 * (2 - channel);
+            for (int y = startY; y < endY; y++) {
+                int index = offset + y * scanlineStride;
+                int rowEnd = index + width;
+                for (; index < rowEnd; index++) {
+                    histogram[(pixels[index] >> shift) & 0xFF]++;
+                }
+            }
+        } else {
+            byte[] pixels = bytePixels;
+            int band = (channel == 0) ? redOffset : (channel == 1) ? greenOffset : blueOffset;
+            for (int y = startY; y < endY; y++) {
+                int index = offset + y * scanlineStride + band;
+                int rowEnd = index + width * pixelStride;
+                for (; index < rowEnd; index += pixelStride) {
+                    histogram[pixels[index] & 0xFF]++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Maps rows [startY, endY) through the lookup tables and writes them as packed RGB
+     * into the target array (row stride = width, like a fresh TYPE_INT_RGB image).
+     */
+    void apply(int startY, int endY, int[] redLut, int[] greenLut, int[] blueLut, int[] target) {
+        for (int y = startY; y < endY; y++) {
+            int out = y * width;
+            if (packedPixels != null) {
+                int[] pixels = packedPixels;
+                int index = offset + y * scanlineStride;
+                int rowEnd = index + width;
+                for (; index < rowEnd; index++, out++) {
+                    int rgb = pixels[index];
+                    target[out] = (redLut[(rgb >> 16) & 0xFF] << 16)
+                            | (greenLut[(rgb >> 8) & 0xFF] << 8)
+                            | blueLut[rgb & 0xFF];
+                }
+            } else {
+                byte[] pixels = bytePixels;
+                int index = offset + y * scanlineStride;
+                int rowEnd = index + width * pixelStride;
+                for (; index < rowEnd; index += pixelStride, out++) {
+                    target[out] = (redLut[pixels[index + redOffset] & 0xFF] << 16)
+                            | (greenLut[pixels[index + greenOffset] & 0xFF] << 8)
+                            | blueLut[pixels[index + blueOffset] & 0xFF];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,42 @@
+package histogram;
+
+import java.awt.image.BufferedImage; // For image manipulation
+
+/**
+ * Single-threaded histogram equalization that works directly on the raster's backing array.
+ * Instead of three histogram scans and three apply scans through getRGB/setRGB,
+ * it builds all three channel histograms in one sweep and writes all three mapped
+ * channels in a second sweep.
+ */
+public class RasterEqualizer {
+
+    /**
+     * Equalizes the R, G and B channels of the image in two passes over its pixel array.
+     * The result matches HistogramEqualizer.equalizeSingleThread for INT_RGB, INT_ARGB and 3BYTE_BGR images.
+     *
+     * @param original The input image.
+     * @return The equalized image (TYPE_INT_RGB).
+     */
+    public static BufferedImage equalize(BufferedImage original) {
+        int width = original.getWidth();
+        int height = original.getHeight();
+        PixelBuffer pixels = PixelBuffer.wrap(original);
+
+        // Step 1: One sweep over the pixels fills the histograms of all three channels.
+        int[] redHistogram = new int[256];
+        int[] greenHistogram = new int[256];
+        int[] blueHistogram = new int[256];
+        pixels.accumulate(0, height, redHistogram, greenHistogram, blueHistogram);
+
+        // Step 2: Building a lookup table for each channel.
+        long totalPixels = (long) width * height;
+        int[] redLut = HistogramEqualizer.buildLookupTable(redHistogram, totalPixels);
+        int[] greenLut = HistogramEqualizer.buildLookupTable(greenHistogram, totalPixels);
+        int[] blueLut = HistogramEqualizer.buildLookupTable(blueHistogram, totalPixels);
+
+        // Step 3: A second sweep writes all three mapped channels straight into the result's array.
+        BufferedImage resultImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        pixels.apply(0, height, redLut, greenLut, blueLut, PixelBuffer.dataOf(resultImage));
+        return resultImage;
+    }
+}
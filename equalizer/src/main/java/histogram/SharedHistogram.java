@@ -0,0 +1,40 @@
+package histogram;
+
+/**
+ * A single 256-bin histogram that several threads count into at the same time.
+ * Each worker thread asks for its own Recorder, counts its pixels through it, and calls
+ * finish() when done; after all workers have finished, copyTo() gives the combined counts.
+ * The implementations differ only in how they keep threads from fighting over the same bins.
+ */
+public interface SharedHistogram {
+
+    /**
+     * Creates the handle one worker thread uses to record its pixels. Not to be shared between threads.
+     */
+    Recorder newRecorder();
+
+    /**
+     * Sets every bin back to zero so the histogram can be reused for the next channel.
+     */
+    void reset();
+
+    /**
+     * Copies the combined counts into the given 256-entry array.
+     * Only call this after every recorder has finished.
+     */
+    void copyTo(int[] histogram);
+
+    /**
+     * A per-thread entry point into the shared histogram.
+     */
+    interface Recorder {
+        /** Counts one pixel with the given color value (0-255). */
+        void add(int colorValue);
+
+        /** Called by the worker at the end of each image row. */
+        void endRow();
+
+        /** Called once when the worker is done; any counts still held locally are published. */
+        void finish();
+    }
+}
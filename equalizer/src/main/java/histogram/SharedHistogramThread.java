@@ -0,0 +1,40 @@
+package histogram;
+
+/**
+ * A thread that counts a specific sub-portion of the image straight into a histogram
+ * shared with the other threads (as opposed to SubHistogramThread, which keeps its own).
+ */
+class SharedHistogramThread extends Thread {
+    private PixelBuffer pixels; // The image's pixels, read straight from the raster.
+    private SharedHistogram sharedHistogram; // The histogram all threads count into.
+    private int startY; // The starting row for my sub-image.
+    private int endY;   // The ending row for my sub-image (exclusive).
+    private int channelToProcess; // The color channel I'm responsible for.
+
+    // My constructor sets up which part of the image I'll work on and where the counts go.
+    SharedHistogramThread(PixelBuffer pixels, SharedHistogram histogram, int startY, int endY, int channel) {
+        this.pixels = pixels;
+        this.sharedHistogram = histogram;
+        this.startY = startY;
+        this.endY = endY;
+        this.channelToProcess = channel;
+    }
+
+    @Override
+    public void run() {
+        // My own handle into the shared histogram; how it avoids contention depends on the implementation.
+        SharedHistogram.Recorder recorder = sharedHistogram.newRecorder();
+        // Reading a row at a time from the raster keeps the per-pixel cost down to the recorder itself,
+        // so the timings show the histogram's contention rather than getRGB.
+        int[] row = new int[pixels.getWidth()];
+        int shift = 8 * (2 - channelToProcess);
+        for (int y = startY; y < endY; y++) {
+            pixels.readRow(y, row);
+            for (int x = 0; x < row.length; x++) {
+                recorder.add((row[x] >> shift) & 0xFF);
+            }
+            recorder.endRow();
+        }
+        recorder.finish(); // Making sure nothing is left in a local batch.
+    }
+}
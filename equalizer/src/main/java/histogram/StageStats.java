@@ -0,0 +1,84 @@
+package histogram;
+
+import java.util.concurrent.atomic.LongAdder; // Cheap counters updated by every thread of a stage
+
+/**
+ * Timing counters for one stage of the batch pipeline.
+ * Every thread of the stage adds to them; the split between working, waiting for input
+ * and waiting for room downstream shows which stage is holding the pipeline back.
+ */
+public class StageStats {
+    private final String name;
+    private final int threads;
+    private final LongAdder items = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final LongAdder busyNanos = new LongAdder();        // Doing the stage's actual work
+    private final LongAdder inputWaitNanos = new LongAdder();   // Blocked on an empty input queue
+    private final LongAdder outputWaitNanos = new LongAdder();  // Blocked on a full output queue
+
+    public StageStats(String name, int threads) {
+        this.name = name;
+        this.threads = threads;
+    }
+
+    void recordItem(long nanos, long byteCount) {
+        items.increment();
+        busyNanos.add(nanos);
+        bytes.add(byteCount);
+    }
+
+    void recordFailure(long nanos) {
+        failures.increment();
+        busyNanos.add(nanos);
+    }
+
+    void recordInputWait(long nanos) {
+        inputWaitNanos.add(nanos);
+    }
+
+    void recordOutputWait(long nanos) {
+        outputWaitNanos.add(nanos);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public long getItems() {
+        return items.sum();
+    }
+
+    public long getFailures() {
+        return failures.sum();
+    }
+
+    /** Bytes read (decode stage) or written (encode stage); 0 for the equalize stage. */
+    public long getBytes() {
+        return bytes.sum();
+    }
+
+    public long getBusyNanos() {
+        return busyNanos.sum();
+    }
+
+    public long getInputWaitNanos() {
+        return inputWaitNanos.sum();
+    }
+
+    public long getOutputWaitNanos() {
+        return outputWaitNanos.sum();
+    }
+
+    /**
+     * Fraction of the stage's thread time spent working during a run of the given length.
+     * The stage closest to 1.0 is the bottleneck.
+     */
+    public double utilization(long wallNanos) {
+        return (wallNanos <= 0) ? 0 : getBusyNanos() / ((double) wallNanos * threads);
+    }
+}
@@ -0,0 +1,58 @@
+package histogram;
+
+import java.io.File;         // Needed for file operations
+import java.io.IOException;  // Handles file-related errors
+
+/**
+ * Command line entry point for the streaming (tiled, two-pass) equalizer.
+ * Usage: StreamingApp input output [stripHeight]
+ * The output format comes from the output file's extension, e.g. "result.png" or "result.tif".
+ * Only formats whose writer pulls the image in strips are accepted (PNG, TIFF, BMP).
+ */
+public class StreamingApp {
+    private static final int DEFAULT_STRIP_HEIGHT = 1024;
+
+    public static void main(String[] args) {
+        if (args.length < 2) {
+            System.err.println("Usage: StreamingApp <input> <output.png|output.tif|output.bmp> [stripHeight]");
+            return;
+        }
+        File input = new File(args[0]);
+        File output = new File(args[1]);
+        int stripHeight = DEFAULT_STRIP_HEIGHT;
+        if (args.length > 2) {
+            try {
+                stripHeight = Integer.parseInt(args[2]);
+            } catch (NumberFormatException e) {
+                stripHeight = 0; // Reported below together with non-positive values.
+            }
+            if (stripHeight < 1) {
+                System.err.println("Error: The strip height must be a positive whole number of rows, not " + args[2]);
+                return;
+            }
+        }
+
+        String name = output.getName();
+        int dot = name.lastIndexOf('.');
+        if (dot < 0) {
+            System.err.println("Error: The output file needs an extension so I know which format to write.");
+            return;
+        }
+        String formatName = name.substring(dot + 1);
+        if (!StreamingEqualizer.writesInStrips(formatName)) {
+            // E.g. the JPEG writer asks for the whole raster, which defeats the point of streaming.
+            System.err.println("Error: The " + formatName + " writer needs the whole image in memory; use png, tif or bmp.");
+            return;
+        }
+
+        try {
+            long startTime = System.currentTimeMillis();
+            new StreamingEqualizer(stripHeight).equalize(input, output, formatName);
+            long endTime = System.currentTimeMillis();
+            System.out.println("Streaming equalization time (" + stripHeight + "-row strips): " + (endTime - startTime) + " ms");
+        } catch (IOException e) {
+            System.err.println("An error occurred during image processing:");
+            e.printStackTrace();
+        }
+    }
+}
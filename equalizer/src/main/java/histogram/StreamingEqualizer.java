@@ -0,0 +1,343 @@
+package histogram;
+
+import java.awt.Image;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;      // Tiles as they come out of the reader
+import java.awt.image.ColorModel;
+import java.awt.image.Raster;
+import java.awt.image.RenderedImage;      // What the writer pulls the output from
+import java.awt.image.SampleModel;
+import java.awt.image.WritableRaster;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.Locale;
+import java.util.Set;
+import java.util.Vector;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ * Two-pass histogram equalization for images too large to hold in memory.
+ * Pass 1 only keeps the three global histograms. It reads a tiled image (e.g. tiled TIFF)
+ * one native tile at a time, and any other image in full-width strips of rows
+ * (ImageReadParam.setSourceRegion). Pass 2 hands the writer an image whose rows are produced
+ * on demand: each strip of rows is re-read, mapped through the lookup tables and dropped again.
+ * The output is pixel-identical to RasterEqualizer.equalize(ImageIO.read(input)).
+ *
+ * Memory stays bounded by one strip (width x stripHeight pixels) as long as the writer pulls
+ * the image in strips: the PNG, TIFF and BMP writers do (see writesInStrips), while e.g. the
+ * JPEG writer asks for the whole image at once. Tiled and striped TIFF read regions directly.
+ * Sequential formats such as JPEG and PNG have to decode the rows above each strip again,
+ * so each pass costs about (number of strips + 1) / 2 full decodes; taller strips are faster
+ * but use more memory.
+ */
+public class StreamingEqualizer {
+    // Output formats whose standard writers pull the image a strip at a time.
+    private static final Set<String> STRIP_WRITER_FORMATS = Set.of("png", "tif", "tiff", "bmp");
+
+    private final int stripHeight; // Rows per strip in both passes
+
+    /**
+     * @param stripHeight The number of rows read (and kept in memory) at a time.
+     */
+    public StreamingEqualizer(int stripHeight) {
+        if (stripHeight < 1) {
+            throw new IllegalArgumentException("Strip height must be positive: " + stripHeight);
+        }
+        this.stripHeight = stripHeight;
+    }
+
+    /**
+     * Whether the standard writer for this format pulls the output in strips, which is what
+     * keeps memory bounded. Other writers ask for the whole image, so the full output raster
+     * ends up in memory after all.
+     *
+     * @param formatName The output format, e.g. "png".
+     */
+    public static boolean writesInStrips(String formatName) {
+        return STRIP_WRITER_FORMATS.contains(formatName.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * Equalizes the input file into the output file without loading either image completely.
+     *
+     * @param input The image file to read.
+     * @param output The file to write.
+     * @param formatName The output format, e.g. "png" or "tiff".
+     * @throws IOException If the file can't be read or written, or no reader/writer exists for it.
+     */
+    public void equalize(File input, File output, String formatName) throws IOException {
+        try (ImageInputStream inputStream = ImageIO.createImageInputStream(input)) {
+            if (inputStream == null) {
+                throw new IOException("Couldn't open " + input);
+            }
+            Iterator<ImageReader> readers = ImageIO.getImageReaders(inputStream);
+            if (!readers.hasNext()) {
+                throw new IOException("No image reader for " + input);
+            }
+            ImageReader reader = readers.next();
+            try {
+                // Not "seekForwardOnly": pass 2 needs to go back and read regions again.
+                reader.setInput(inputStream, false, true);
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+
+                // Pass 1: global histograms, one tile or strip at a time.
+                long[][] histograms = buildHistograms(reader, width, height);
+                long totalPixels = (long) width * height;
+                int[] redLut = HistogramEqualizer.buildLookupTable(histograms[0], totalPixels);
+                int[] greenLut = HistogramEqualizer.buildLookupTable(histograms[1], totalPixels);
+                int[] blueLut = HistogramEqualizer.buildLookupTable(histograms[2], totalPixels);
+
+                // Pass 2: the writer pulls equalized strips, each one read and mapped on demand.
+                writeEqualized(new EqualizedImage(reader, width, height, stripHeight, redLut, greenLut, blueLut),
+                        output, formatName);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private long[][] buildHistograms(ImageReader reader, int width, int height) throws IOException {
+        long[][] histograms = new long[3][256];
+        int[][] counts = new int[3][256];
+        if (reader.isImageTiled(0)) {
+            // Native tiles can be decoded on their own, so every tile is read exactly once.
+            int tilesX = (width + reader.getTileWidth(0) - 1) / reader.getTileWidth(0);
+            int tilesY = (height + reader.getTileHeight(0) - 1) / reader.getTileHeight(0);
+            for (int tileY = 0; tileY < tilesY; tileY++) {
+                for (int tileX = 0; tileX < tilesX; tileX++) {
+                    addToHistograms(reader.readTile(0, tileX, tileY), counts, histograms);
+                }
+            }
+        } else {
+            // Full-width strips: for sequential formats each read decodes from the top of the
+            // image, so few tall strips cost far less than many small tiles.
+            ImageReadParam param = reader.getDefaultReadParam();
+            for (int y = 0; y < height; y += stripHeight) {
+                param.setSourceRegion(new Rectangle(0, y, width, Math.min(stripHeight, height - y)));
+                addToHistograms(reader.read(0, param), counts, histograms);
+            }
+        }
+        return histograms;
+    }
+
+    private static void addToHistograms(BufferedImage part, int[][] counts, long[][] histograms) {
+        PixelBuffer.wrap(part).accumulate(0, part.getHeight(), counts[0], counts[1], counts[2]);
+        // Moving the part's counts into the long totals so huge images can't overflow an int bin.
+        for (int channel = 0; channel < 3; channel++) {
+            for (int i = 0; i < 256; i++) {
+                histograms[channel][i] += counts[channel][i];
+                counts[channel][i] = 0;
+            }
+        }
+    }
+
+    private static void writeEqualized(RenderedImage image, File output, String formatName) throws IOException {
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersByFormatName(formatName);
+        if (!writers.hasNext()) {
+            throw new IOException("No image writer for format " + formatName);
+        }
+        ImageWriter writer = writers.next();
+        // Deleting first so an old, longer file doesn't leave trailing bytes behind.
+        if (output.exists() && !output.delete()) {
+            throw new IOException("Couldn't replace " + output);
+        }
+        try (ImageOutputStream outputStream = ImageIO.createImageOutputStream(output)) {
+            if (outputStream == null) {
+                throw new IOException("Couldn't create " + output);
+            }
+            writer.setOutput(outputStream);
+            writer.write(null, new IIOImage(image, null, null), writer.getDefaultWriteParam());
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    /**
+     * A TYPE_INT_RGB-like image made of full-width strips that are only computed when the
+     * writer asks for them. Just the most recent strip is kept.
+     */
+    private static final class EqualizedImage implements RenderedImage {
+        private static final ColorModel RGB_COLOR_MODEL =
+                new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB).getColorModel();
+
+        private final ImageReader reader;
+        private final ImageReadParam param;
+        private final int width;
+        private final int height;
+        private final int stripHeight;
+        private final int[] redLut;
+        private final int[] greenLut;
+        private final int[] blueLut;
+        private final SampleModel sampleModel;
+
+        private int cachedStrip = -1;   // Index of the strip held in cachedRaster
+        private Raster cachedRaster;
+
+        EqualizedImage(ImageReader reader, int width, int height, int stripHeight,
+                       int[] redLut, int[] greenLut, int[] blueLut) {
+            this.reader = reader;
+            this.param = reader.getDefaultReadParam();
+            this.width = width;
+            this.height = height;
+            this.stripHeight = stripHeight;
+            this.redLut = redLut;
+            this.greenLut = greenLut;
+            this.blueLut = blueLut;
+            this.sampleModel = RGB_COLOR_MODEL.createCompatibleSampleModel(width, stripHeight);
+        }
+
+        @Override
+        public synchronized Raster getTile(int tileX, int tileY) {
+            if (tileX != 0 || tileY < 0 || tileY >= getNumYTiles()) {
+                throw new IllegalArgumentException("No tile at " + tileX + ", " + tileY);
+            }
+            if (tileY != cachedStrip) {
+                cachedRaster = null; // Letting the old strip go before reading the next one.
+                cachedRaster = readStrip(tileY);
+                cachedStrip = tileY;
+            }
+            return cachedRaster;
+        }
+
+        private Raster readStrip(int strip) {
+            int startY = strip * stripHeight;
+            int rows = Math.min(stripHeight, height - startY);
+            param.setSourceRegion(new Rectangle(0, startY, width, rows));
+            BufferedImage source;
+            try {
+                source = reader.read(0, param);
+            } catch (IOException e) {
+                // RenderedImage can't throw checked exceptions; the writer passes this on to the caller.
+                throw new IllegalStateException("Couldn't read rows " + startY + "-" + (startY + rows), e);
+            }
+            BufferedImage equalized = new BufferedImage(width, rows, BufferedImage.TYPE_INT_RGB);
+            PixelBuffer.wrap(source).apply(0, rows, redLut, greenLut, blueLut, PixelBuffer.dataOf(equalized));
+            return equalized.getRaster().createTranslatedChild(0, startY);
+        }
+
+        @Override
+        public Raster getData(Rectangle rect) {
+            Rectangle region = rect.intersection(new Rectangle(0, 0, width, height));
+            WritableRaster result = Raster.createWritableRaster(
+                    sampleModel.createCompatibleSampleModel(region.width, region.height),
+                    new Point(region.x, region.y));
+            if (region.isEmpty()) {
+                return result;
+            }
+            int firstStrip = region.y / stripHeight;
+            int lastStrip = (region.y + region.height - 1) / stripHeight;
+            for (int strip = firstStrip; strip <= lastStrip; strip++) {
+                result.setRect(getTile(0, strip)); // Copies only the overlapping rows.
+            }
+            return result;
+        }
+
+        @Override
+        public Raster getData() {
+            return getData(new Rectangle(0, 0, width, height));
+        }
+
+        @Override
+        public WritableRaster copyData(WritableRaster raster) {
+            if (raster == null) {
+                return (WritableRaster) getData();
+            }
+            raster.setRect(getData(raster.getBounds()));
+            return raster;
+        }
+
+        @Override
+        public Vector<RenderedImage> getSources() {
+            return null;
+        }
+
+        @Override
+        public Object getProperty(String name) {
+            return Image.UndefinedProperty;
+        }
+
+        @Override
+        public String[] getPropertyNames() {
+            return null;
+        }
+
+        @Override
+        public ColorModel getColorModel() {
+            return RGB_COLOR_MODEL;
+        }
+
+        @Override
+        public SampleModel getSampleModel() {
+            return sampleModel;
+        }
+
+        @Override
+        public int getWidth() {
+            return width;
+        }
+
+        @Override
+        public int getHeight() {
+            return height;
+        }
+
+        @Override
+        public int getMinX() {
+            return 0;
+        }
+
+        @Override
+        public int getMinY() {
+            return 0;
+        }
+
+        @Override
+        public int getNumXTiles() {
+            return 1;
+        }
+
+        @Override
+        public int getNumYTiles() {
+            return (height + stripHeight - 1) / stripHeight;
+        }
+
+        @Override
+        public int getMinTileX() {
+            return 0;
+        }
+
+        @Override
+        public int getMinTileY() {
+            return 0;
+        }
+
+        @Override
+        public int getTileWidth() {
+            return width;
+        }
+
+        @Override
+        public int getTileHeight() {
+            return stripHeight;
+        }
+
+        @Override
+        public int getTileGridXOffset() {
+            return 0;
+        }
+
+        @Override
+        public int getTileGridYOffset() {
+            return 0;
+        }
+    }
+}
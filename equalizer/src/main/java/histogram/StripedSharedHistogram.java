@@ -0,0 +1,77 @@
+package histogram;
+
+import java.util.concurrent.atomic.AtomicInteger;      // Hands out stripes to new recorders
+import java.util.concurrent.atomic.AtomicIntegerArray; // Holds every stripe's bins
+
+/**
+ * A shared histogram split into several stripes of 256 atomic bins, by default one per core.
+ * Each recorder is given its own stripe, so threads only share a counter when there are
+ * more threads than stripes. The stripes are padded apart so two of them never sit on the
+ * same cache line. Reading the histogram sums the stripes.
+ */
+public class StripedSharedHistogram implements SharedHistogram {
+    // 16 ints = 64 bytes, one cache line of padding between neighbouring stripes.
+    private static final int PADDING = 16;
+    private static final int STRIDE = 256 + PADDING;
+
+    private final int stripeCount;
+    private final AtomicIntegerArray bins;
+    private final AtomicInteger nextStripe = new AtomicInteger();
+
+    /**
+     * Creates a striped histogram with one stripe per available core.
+     */
+    public StripedSharedHistogram() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param stripeCount The number of independent stripes.
+     */
+    public StripedSharedHistogram(int stripeCount) {
+        if (stripeCount < 1) {
+            throw new IllegalArgumentException("stripeCount must be at least 1: " + stripeCount);
+        }
+        this.stripeCount = stripeCount;
+        // Leading padding as well, so stripe 0 doesn't share a line with the array header.
+        this.bins = new AtomicIntegerArray(PADDING + stripeCount * STRIDE);
+    }
+
+    @Override
+    public Recorder newRecorder() {
+        int base = PADDING + Math.floorMod(nextStripe.getAndIncrement(), stripeCount) * STRIDE;
+        return new Recorder() {
+            @Override
+            public void add(int colorValue) {
+                bins.incrementAndGet(base + colorValue); // Normally uncontended: this stripe is mine.
+            }
+
+            @Override
+            public void endRow() {
+            }
+
+            @Override
+            public void finish() {
+            }
+        };
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < bins.length(); i++) {
+            bins.set(i, 0);
+        }
+        nextStripe.set(0);
+    }
+
+    @Override
+    public void copyTo(int[] histogram) {
+        for (int i = 0; i < 256; i++) {
+            int sum = 0;
+            for (int stripe = 0; stripe < stripeCount; stripe++) {
+                sum += bins.get(PADDING + stripe * STRIDE + i);
+            }
+            histogram[i] = sum;
+        }
+    }
+}
@@ -0,0 +1,102 @@
+package histogram;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BatchPipelineTest {
+    private static final int IMAGES = 9;
+
+    @TempDir
+    File directory;
+
+    // Several threads per stage and a queue of 1, so the end markers and the backpressure both get exercised.
+    @Test
+    void processesEveryReadableFileAndSkipsCorruptOnes() throws IOException {
+        File inputDir = new File(directory, "in");
+        File outputDir = new File(directory, "out");
+        assertTrue(inputDir.mkdir() && outputDir.mkdir());
+        List<File> inputs = new ArrayList<>();
+        for (int i = 0; i < IMAGES; i++) {
+            File input = new File(inputDir, "image" + i + ".png");
+            assertTrue(ImageIO.write(createImage(40 + i, 30 + 2 * i, i), "png", input));
+            inputs.add(input);
+        }
+        File corrupt = new File(inputDir, "corrupt.png");
+        Files.write(corrupt.toPath(), new byte[] {1, 2, 3, 4, 5, 6, 7, 8});
+        inputs.add(4, corrupt);
+
+        BatchPipeline pipeline = new BatchPipeline(EqualizationStrategy.FORK_JOIN, 2, 3, 2, 2, 1, "png");
+        // A lost end-of-input marker would leave a stage waiting forever.
+        BatchReport report = assertTimeoutPreemptively(Duration.ofSeconds(30),
+                () -> pipeline.process(inputs, outputDir));
+
+        assertEquals(IMAGES, report.getImagesWritten());
+        assertEquals(1, report.getFailures());
+        for (File input : inputs) {
+            if (input == corrupt) {
+                continue;
+            }
+            BufferedImage expected = RasterEqualizer.equalize(ImageIO.read(input));
+            BufferedImage actual = ImageIO.read(new File(outputDir, input.getName()));
+            assertEquals(0, countDifferentPixels(expected, actual), input.getName());
+        }
+    }
+
+    @Test
+    void refusesOutputsThatOverwriteEachOtherOrTheirInput() {
+        BatchPipeline pipeline = new BatchPipeline(EqualizationStrategy.RASTER, 1, 1, 1, 1, 1, "jpg");
+        File outputDir = new File(directory, "out");
+        List<File> sameBaseName = List.of(new File(directory, "f1.png"), new File(directory, "f1.jpg"));
+        assertThrows(IllegalArgumentException.class, () -> pipeline.checkOutputNames(sameBaseName, outputDir));
+        List<File> intoInputDir = List.of(new File(directory, "photo.jpg"));
+        assertThrows(IllegalArgumentException.class, () -> pipeline.checkOutputNames(intoInputDir, directory));
+    }
+
+    @Test
+    void rejectsZeroStrategyThreads() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new BatchPipeline(EqualizationStrategy.FORK_JOIN, 0, 1, 1, 1, 1, "png"));
+    }
+
+    private static BufferedImage createImage(int width, int height, int seed) {
+        Random random = new Random(seed);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int r = random.nextInt(200);
+                int g = 50 + random.nextInt(120);
+                int b = random.nextInt(90);
+                image.setRGB(x, y, (r << 16) | (g << 8) | b);
+            }
+        }
+        return image;
+    }
+
+    private static int countDifferentPixels(BufferedImage expected, BufferedImage actual) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        int different = 0;
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                if ((expected.getRGB(x, y) & 0xFFFFFF) != (actual.getRGB(x, y) & 0xFFFFFF)) {
+                    different++;
+                }
+            }
+        }
+        return different;
+    }
+}
@@ -0,0 +1,262 @@
+package histogram;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Both CLAHE modes checked against straightforward reference implementations: the tiled mode
+ * against double-precision bilinear interpolation (its fixed-point weights may be off by one level),
+ * the sliding-window mode against a window histogram rebuilt from scratch for every pixel.
+ */
+class ClaheEqualizerTest {
+    private static final int TILES = 4;
+    private static final double CLIP_LIMIT = 2.0;
+
+    private final ClaheEqualizer clahe = new ClaheEqualizer(3, TILES, TILES, CLIP_LIMIT);
+
+    @AfterEach
+    void shutdown() {
+        clahe.shutdown();
+    }
+
+    @Test
+    void tiledMatchesBilinearReference() {
+        // 1x1, a single row, a single column, fewer pixels than tiles, and odd sizes that don't split evenly.
+        int[][] sizes = {{1, 1}, {57, 1}, {1, 43}, {3, 2}, {101, 67}};
+        for (int[] size : sizes) {
+            BufferedImage original = createImage(size[0], size[1]);
+            BufferedImage actual = clahe.equalize(original);
+            int[] expected = tiledReference(original);
+            assertEquals(size[0], actual.getWidth());
+            assertEquals(size[1], actual.getHeight());
+            assertTrue(maxChannelDifference(expected, actual) <= 1, "image " + size[0] + "x" + size[1]);
+        }
+    }
+
+    @Test
+    void slidingWindowMatchesReference() {
+        int[][] sizes = {{1, 1}, {29, 1}, {1, 23}, {31, 19}};
+        for (int[] size : sizes) {
+            BufferedImage original = createImage(size[0], size[1]);
+            for (int windowSize : new int[] {1, 5, 63}) {
+                BufferedImage actual = clahe.equalizeSlidingWindow(original, windowSize);
+                int[] expected = slidingWindowReference(original, windowSize);
+                assertEquals(0, maxChannelDifference(expected, actual),
+                        "image " + size[0] + "x" + size[1] + ", window " + windowSize);
+            }
+        }
+    }
+
+    // Worked out by hand rather than with the clipping code the references above share with the engine.
+    // A 3x3 image of grey 10 with grey 200 in the centre; every window has at most 128 pixels, so the
+    // clip level is 1 and everything above one count per bin is spread evenly over all 256 bins.
+    @Test
+    void clippingMatchesHandComputedValues() {
+        BufferedImage original = new BufferedImage(3, 3, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 3; y++) {
+            for (int x = 0; x < 3; x++) {
+                original.setRGB(x, y, grey(10));
+            }
+        }
+        original.setRGB(1, 1, grey(200));
+
+        // Centre, 9-pixel window: bins 10 (8, clipped to 1, excess 7) and 200 (1).
+        // cdf(200) = 1 + 1 + 7 * 201 / 256 = 7.496..., and 7.496 * 255 / 9 = 212.4 -> 212.
+        // Corner, 4-pixel window: bins 10 (3, clipped to 1, excess 2) and 200 (1).
+        // cdf(10) = 1 + 2 * 11 / 256 = 1.086, and 1.086 * 255 / 4 = 69.2 -> 69 (191 without clipping).
+        BufferedImage sliding = clahe.equalizeSlidingWindow(original, 3);
+        assertEquals(grey(212), sliding.getRGB(1, 1) & 0xFFFFFF);
+        assertEquals(grey(69), sliding.getRGB(0, 0) & 0xFFFFFF);
+
+        // One tile over all 9 pixels: the centre is the same as above, and
+        // cdf(10) = 1 + 7 * 11 / 256 = 1.301, and 1.301 * 255 / 9 = 36.9 -> 36.
+        ClaheEqualizer singleTile = new ClaheEqualizer(1, 1, 1, CLIP_LIMIT);
+        try {
+            BufferedImage tiled = singleTile.equalize(original);
+            assertEquals(grey(212), tiled.getRGB(1, 1) & 0xFFFFFF);
+            assertEquals(grey(36), tiled.getRGB(0, 0) & 0xFFFFFF);
+        } finally {
+            singleTile.shutdown();
+        }
+    }
+
+    @Test
+    void slidingWindowRejectsEvenSizes() {
+        BufferedImage original = createImage(8, 8);
+        assertThrows(IllegalArgumentException.class, () -> clahe.equalizeSlidingWindow(original, 4));
+        assertThrows(IllegalArgumentException.class, () -> clahe.equalizeSlidingWindow(original, 0));
+    }
+
+    private static int[] tiledReference(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int columns = Math.min(TILES, width);
+        int rows = Math.min(TILES, height);
+        int[] xBounds = bounds(width, columns);
+        int[] yBounds = bounds(height, rows);
+
+        // tables[tile][channel][value]
+        int[][][] tables = new int[columns * rows][3][];
+        for (int tileY = 0; tileY < rows; tileY++) {
+            for (int tileX = 0; tileX < columns; tileX++) {
+                int[][] histograms = new int[3][256];
+                for (int y = yBounds[tileY]; y < yBounds[tileY + 1]; y++) {
+                    for (int x = xBounds[tileX]; x < xBounds[tileX + 1]; x++) {
+                        int rgb = image.getRGB(x, y);
+                        for (int channel = 0; channel < 3; channel++) {
+                            histograms[channel][(rgb >> (8 * (2 - channel))) & 0xFF]++;
+                        }
+                    }
+                }
+                int tilePixels = (xBounds[tileX + 1] - xBounds[tileX]) * (yBounds[tileY + 1] - yBounds[tileY]);
+                for (int channel = 0; channel < 3; channel++) {
+                    tables[tileY * columns + tileX][channel] = clippedTable(histograms[channel], tilePixels);
+                }
+            }
+        }
+
+        int[] result = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            double[] yAxis = neighbours(yBounds, y);
+            for (int x = 0; x < width; x++) {
+                double[] xAxis = neighbours(xBounds, x);
+                int rgb = image.getRGB(x, y);
+                int out = 0;
+                for (int channel = 0; channel < 3; channel++) {
+                    int value = (rgb >> (8 * (2 - channel))) & 0xFF;
+                    double top = lerp(tables[(int) yAxis[0] * columns + (int) xAxis[0]][channel][value],
+                            tables[(int) yAxis[0] * columns + (int) xAxis[1]][channel][value], xAxis[2]);
+                    double bottom = lerp(tables[(int) yAxis[1] * columns + (int) xAxis[0]][channel][value],
+                            tables[(int) yAxis[1] * columns + (int) xAxis[1]][channel][value], xAxis[2]);
+                    out = (out << 8) | (int) Math.round(lerp(top, bottom, yAxis[2]));
+                }
+                result[y * width + x] = out;
+            }
+        }
+        return result;
+    }
+
+    private static int[] bounds(int size, int count) {
+        int[] bounds = new int[count + 1];
+        for (int t = 0; t <= count; t++) {
+            bounds[t] = t * size / count;
+        }
+        return bounds;
+    }
+
+    // {low tile, high tile, weight of the high tile} for one coordinate; clamped outside the outer tile centres.
+    private static double[] neighbours(int[] bounds, int c) {
+        int tiles = bounds.length - 1;
+        for (int t = 0; t + 1 < tiles; t++) {
+            double low = center(bounds, t);
+            double high = center(bounds, t + 1);
+            if (c <= low) {
+                return new double[] {t, t, 0};
+            }
+            if (c < high) {
+                return new double[] {t, t + 1, (c - low) / (high - low)};
+            }
+        }
+        return new double[] {tiles - 1, tiles - 1, 0};
+    }
+
+    private static double center(int[] bounds, int tile) {
+        return (bounds[tile] + bounds[tile + 1] - 1) / 2.0;
+    }
+
+    private static double lerp(double a, double b, double weight) {
+        return a + (b - a) * weight;
+    }
+
+    private static int[] clippedTable(int[] histogram, int totalPixels) {
+        int[] table = new int[256];
+        for (int value = 0; value < 256; value++) {
+            table[value] = clippedValue(histogram, value, totalPixels);
+        }
+        return table;
+    }
+
+    // Bins above the clip level are cut off, and the excess is spread evenly over all 256 bins.
+    private static int clippedValue(int[] histogram, int value, int totalPixels) {
+        double clip = Math.max(1.0, CLIP_LIMIT * totalPixels / 256.0);
+        double excess = 0;
+        double below = 0;
+        for (int i = 0; i < 256; i++) {
+            double kept = Math.min(histogram[i], clip);
+            excess += histogram[i] - kept;
+            if (i <= value) {
+                below += kept;
+            }
+        }
+        double cdf = below + excess * (value + 1) / 256.0;
+        return Math.min(255, (int) (cdf * 255 / totalPixels));
+    }
+
+    private static int[] slidingWindowReference(BufferedImage image, int windowSize) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int radius = windowSize / 2;
+        int[] result = new int[width * height];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int[][] histograms = new int[3][256];
+                int windowPixels = 0;
+                for (int yy = Math.max(0, y - radius); yy <= Math.min(height - 1, y + radius); yy++) {
+                    for (int xx = Math.max(0, x - radius); xx <= Math.min(width - 1, x + radius); xx++) {
+                        int rgb = image.getRGB(xx, yy);
+                        for (int channel = 0; channel < 3; channel++) {
+                            histograms[channel][(rgb >> (8 * (2 - channel))) & 0xFF]++;
+                        }
+                        windowPixels++;
+                    }
+                }
+                int rgb = image.getRGB(x, y);
+                int out = 0;
+                for (int channel = 0; channel < 3; channel++) {
+                    int value = (rgb >> (8 * (2 - channel))) & 0xFF;
+                    out = (out << 8) | clippedValue(histograms[channel], value, windowPixels);
+                }
+                result[y * width + x] = out;
+            }
+        }
+        return result;
+    }
+
+    private static int grey(int level) {
+        return (level << 16) | (level << 8) | level;
+    }
+
+    // A gradient plus noise, with different ranges per channel so a mix-up between channels shows up.
+    private static BufferedImage createImage(int width, int height) {
+        Random random = new Random(42);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int r = (x * 3 + random.nextInt(40)) & 0xFF;
+                int g = 40 + (y * 150 / height) + random.nextInt(30);
+                int b = random.nextInt(70);
+                image.setRGB(x, y, (r << 16) | (g << 8) | b);
+            }
+        }
+        return image;
+    }
+
+    private static int maxChannelDifference(int[] expected, BufferedImage actual) {
+        int width = actual.getWidth();
+        int max = 0;
+        for (int i = 0; i < expected.length; i++) {
+            int rgb = actual.getRGB(i % width, i / width);
+            for (int shift = 0; shift <= 16; shift += 8) {
+                int difference = Math.abs(((expected[i] >> shift) & 0xFF) - ((rgb >> shift) & 0xFF));
+                max = Math.max(max, difference);
+            }
+        }
+        return max;
+    }
+}
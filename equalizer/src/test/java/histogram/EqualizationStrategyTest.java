@@ -0,0 +1,71 @@
+package histogram;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Every global strategy has to produce exactly the image equalizeSingleThread produces,
+ * whatever the thread count and input layout.
+ */
+class EqualizationStrategyTest {
+    private static final int WIDTH = 301; // Odd sizes so rows and tiles don't split evenly
+    private static final int HEIGHT = 157;
+
+    @Test
+    void globalStrategiesMatchSingleThread() throws InterruptedException {
+        // Sub-images share their parent's array at an offset and with a wider row stride.
+        BufferedImage[] originals = {
+                createImage(BufferedImage.TYPE_INT_RGB, WIDTH, HEIGHT),
+                createImage(BufferedImage.TYPE_3BYTE_BGR, WIDTH, HEIGHT),
+                createImage(BufferedImage.TYPE_BYTE_GRAY, WIDTH, HEIGHT),
+                createImage(BufferedImage.TYPE_INT_RGB, WIDTH + 20, HEIGHT + 10).getSubimage(7, 5, WIDTH, HEIGHT),
+                createImage(BufferedImage.TYPE_3BYTE_BGR, WIDTH + 20, HEIGHT + 10).getSubimage(7, 5, WIDTH, HEIGHT)
+        };
+        for (BufferedImage original : originals) {
+            int type = original.getType();
+            BufferedImage expected = HistogramEqualizer.equalizeSingleThread(original);
+            for (EqualizationStrategy strategy : EqualizationStrategy.values()) {
+                // Baselines are wrong on purpose, and CLAHE is a different (local) mapping.
+                if (strategy.isBaseline() || strategy == EqualizationStrategy.CLAHE) {
+                    continue;
+                }
+                for (int threads : new int[] {1, 3, 8}) {
+                    BufferedImage actual = strategy.equalize(original, threads);
+                    assertEquals(0, countDifferentPixels(expected, actual),
+                            strategy + " with " + threads + " threads on image type " + type
+                                    + (original.getRaster().getParent() != null ? " (sub-image)" : ""));
+                }
+            }
+        }
+    }
+
+    // Channels with different ranges, so a mix-up between channels shows up.
+    private static BufferedImage createImage(int type, int width, int height) {
+        Random random = new Random(42);
+        BufferedImage image = new BufferedImage(width, height, type);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int r = random.nextInt(200);
+                int g = 50 + random.nextInt(120);
+                int b = random.nextInt(90);
+                image.setRGB(x, y, (r << 16) | (g << 8) | b);
+            }
+        }
+        return image;
+    }
+
+    private static int countDifferentPixels(BufferedImage expected, BufferedImage actual) {
+        int different = 0;
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                if (expected.getRGB(x, y) != actual.getRGB(x, y)) {
+                    different++;
+                }
+            }
+        }
+        return different;
+    }
+}
@@ -0,0 +1,94 @@
+package histogram;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.jupiter.api.Test;
+
+class EqualizerContextTest {
+
+    @Test
+    void matchesRasterEqualizer() {
+        BufferedImage original = createImage(97, 61);
+        try (EqualizerContext context = new EqualizerContext(3)) {
+            assertMatchesRasterEqualizer(original, context.equalize(original));
+        }
+    }
+
+    // A failed histogram phase used to swap the histogram and apply phases of every later call.
+    @Test
+    void workerFailureLeavesContextUsable() {
+        BufferedImage original = createImage(64, 48);
+        // Claims more rows than its raster has, so the workers run off the end of the pixel array.
+        BufferedImage broken = new BufferedImage(64, 48, BufferedImage.TYPE_INT_RGB) {
+            @Override
+            public int getHeight() {
+                return 96;
+            }
+        };
+        try (EqualizerContext context = new EqualizerContext(4)) {
+            assertThrows(IllegalStateException.class, () -> context.equalize(broken));
+            for (int i = 0; i < 2; i++) {
+                assertMatchesRasterEqualizer(original, context.equalize(original));
+            }
+        }
+    }
+
+    @Test
+    void interruptedCallerFailsAndKeepsItsInterruptStatus() {
+        BufferedImage original = createImage(64, 48);
+        try (EqualizerContext context = new EqualizerContext(4)) {
+            Thread.currentThread().interrupt();
+            assertThrows(IllegalStateException.class, () -> context.equalize(original));
+            assertTrue(Thread.interrupted(), "the interrupt status was lost");
+            assertMatchesRasterEqualizer(original, context.equalize(original));
+        }
+    }
+
+    // A shutdown from another thread used to leave equalize() parked forever.
+    @Test
+    void shutdownDuringEqualizeFailsInsteadOfHanging() throws InterruptedException {
+        BufferedImage image = new BufferedImage(64, 64, BufferedImage.TYPE_INT_RGB);
+        EqualizerContext context = new EqualizerContext(4);
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        Thread equalizing = new Thread(() -> {
+            try {
+                while (true) {
+                    context.equalize(image);
+                }
+            } catch (RuntimeException e) {
+                failure.set(e);
+            }
+        });
+        equalizing.start();
+        Thread.sleep(50);
+        context.shutdown();
+        equalizing.join(5_000);
+        assertFalse(equalizing.isAlive(), "equalize() is still waiting after shutdown()");
+        assertInstanceOf(IllegalStateException.class, failure.get());
+    }
+
+    private static BufferedImage createImage(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_3BYTE_BGR);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, (x * 2 << 16) | (y * 3 << 8) | ((x + y) & 0x7F));
+            }
+        }
+        return image;
+    }
+
+    private static void assertMatchesRasterEqualizer(BufferedImage original, BufferedImage actual) {
+        BufferedImage expected = RasterEqualizer.equalize(original);
+        for (int y = 0; y < original.getHeight(); y++) {
+            for (int x = 0; x < original.getWidth(); x++) {
+                assertEquals(expected.getRGB(x, y), actual.getRGB(x, y), "pixel " + x + "," + y);
+            }
+        }
+    }
+}
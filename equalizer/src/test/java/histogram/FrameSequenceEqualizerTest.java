@@ -0,0 +1,112 @@
+package histogram;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.util.Random;
+import org.junit.jupiter.api.Test;
+
+class FrameSequenceEqualizerTest {
+
+    // Without smoothing, sampling or a threshold, every frame is equalized on its own.
+    @Test
+    void unsmoothedMatchesRasterEqualizer() {
+        FrameSequenceEqualizer[] equalizers = {
+                FrameSequenceEqualizer.withWindow(1, 0, 1),
+                FrameSequenceEqualizer.withDecay(1.0, 0, 1)
+        };
+        for (FrameSequenceEqualizer equalizer : equalizers) {
+            for (int f = 0; f < 5; f++) {
+                BufferedImage frame = createFrame(67, 43, f);
+                assertSameImage(RasterEqualizer.equalize(frame), equalizer.equalize(frame), "frame " + f);
+            }
+            assertEquals(5, equalizer.getTableRebuilds());
+        }
+    }
+
+    // The sample offsets used to move along the diagonal only, so a step-2 sample of a checkerboard
+    // saw nothing but dark pixels and the dark squares came out white.
+    @Test
+    void sampleCoversTheWholeGrid() {
+        BufferedImage checkerboard = new BufferedImage(64, 64, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < 64; y++) {
+            for (int x = 0; x < 64; x++) {
+                checkerboard.setRGB(x, y, ((x + y) % 2 == 0) ? 0x404040 : 0xC0C0C0);
+            }
+        }
+        FrameSequenceEqualizer equalizer = FrameSequenceEqualizer.withWindow(4, 0, 2);
+        BufferedImage result = null;
+        for (int f = 0; f < 4; f++) {
+            result = equalizer.equalize(checkerboard);
+        }
+        // Over four frames every offset was sampled once: half dark, half bright, like the full frame.
+        assertEquals(0x7F7F7F, result.getRGB(0, 0) & 0xFFFFFF);
+        assertEquals(0xFFFFFF, result.getRGB(1, 0) & 0xFFFFFF);
+    }
+
+    // Most sample offsets lie outside a 1x1 frame; an empty sample used to turn the frame black.
+    @Test
+    void tinyFramesAreCountedInFull() {
+        FrameSequenceEqualizer equalizer = FrameSequenceEqualizer.withWindow(1, 0, 4);
+        BufferedImage frame = new BufferedImage(1, 1, BufferedImage.TYPE_INT_RGB);
+        frame.setRGB(0, 0, 0x336699);
+        for (int f = 0; f < 16; f++) {
+            assertEquals(0xFFFFFF, equalizer.equalize(frame).getRGB(0, 0) & 0xFFFFFF, "frame " + f);
+        }
+    }
+
+    @Test
+    void tablesAreRebuiltOnlyAboveTheThreshold() {
+        FrameSequenceEqualizer equalizer = FrameSequenceEqualizer.withWindow(1, 0.05, 1);
+        BufferedImage frame = createFrame(50, 40, 1);
+        equalizer.equalize(frame);
+        assertFalse(equalizer.lastFrameReusedTables());
+        assertEquals(1, equalizer.getTableRebuilds());
+
+        equalizer.equalize(frame);
+        assertTrue(equalizer.lastFrameReusedTables(), "identical frame");
+
+        // A handful of changed pixels moves the CDFs far less than 5%.
+        BufferedImage nearlySame = createFrame(50, 40, 1);
+        for (int x = 0; x < 5; x++) {
+            nearlySame.setRGB(x, 0, 0xFFFFFF);
+        }
+        equalizer.equalize(nearlySame);
+        assertTrue(equalizer.lastFrameReusedTables(), "nearly identical frame");
+        assertEquals(1, equalizer.getTableRebuilds());
+
+        BufferedImage darker = createFrame(50, 40, 2);
+        for (int y = 0; y < darker.getHeight(); y++) {
+            for (int x = 0; x < darker.getWidth(); x++) {
+                darker.setRGB(x, y, (darker.getRGB(x, y) >> 2) & 0x3F3F3F);
+            }
+        }
+        equalizer.equalize(darker);
+        assertFalse(equalizer.lastFrameReusedTables(), "much darker frame");
+        assertEquals(2, equalizer.getTableRebuilds());
+    }
+
+    private static BufferedImage createFrame(int width, int height, int seed) {
+        Random random = new Random(seed);
+        BufferedImage frame = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int r = 20 + random.nextInt(200);
+                int g = 50 + random.nextInt(120);
+                int b = 10 + random.nextInt(90);
+                frame.setRGB(x, y, (r << 16) | (g << 8) | b);
+            }
+        }
+        return frame;
+    }
+
+    private static void assertSameImage(BufferedImage expected, BufferedImage actual, String message) {
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                assertEquals(expected.getRGB(x, y), actual.getRGB(x, y), message + ", pixel " + x + "," + y);
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package histogram;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import javax.imageio.ImageIO;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * The streaming equalizer has to write exactly what RasterEqualizer produces from the fully decoded input,
+ * whatever the input format, output format and strip height.
+ */
+class StreamingEqualizerTest {
+    private static final int WIDTH = 173; // Odd sizes so the last strip is a partial one
+    private static final int HEIGHT = 131;
+
+    @TempDir
+    File directory;
+
+    @Test
+    void matchesRasterEqualizer() throws IOException {
+        BufferedImage source = createImage();
+        for (String inputFormat : new String[] {"jpg", "png", "bmp", "tif"}) {
+            File input = new File(directory, "input." + inputFormat);
+            assertTrue(ImageIO.write(source, inputFormat, input), "no writer for " + inputFormat);
+            // Compared against the decoded input, so lossy JPEG input doesn't matter.
+            BufferedImage expected = RasterEqualizer.equalize(ImageIO.read(input));
+            for (String outputFormat : new String[] {"png", "tif", "bmp"}) {
+                for (int stripHeight : new int[] {7, 50, HEIGHT, 1024}) {
+                    File output = new File(directory, "output-" + stripHeight + "." + outputFormat);
+                    new StreamingEqualizer(stripHeight).equalize(input, output, outputFormat);
+                    assertEquals(0, countDifferentPixels(expected, ImageIO.read(output)),
+                            inputFormat + " to " + outputFormat + " in " + stripHeight + "-row strips");
+                }
+            }
+        }
+    }
+
+    private static BufferedImage createImage() {
+        Random random = new Random(42);
+        BufferedImage image = new BufferedImage(WIDTH, HEIGHT, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                int r = (x + random.nextInt(30)) & 0xFF;
+                int g = 60 + (y * 100 / HEIGHT) + random.nextInt(20);
+                int b = random.nextInt(90);
+                image.setRGB(x, y, (r << 16) | (g << 8) | b);
+            }
+        }
+        return image;
+    }
+
+    private static int countDifferentPixels(BufferedImage expected, BufferedImage actual) {
+        assertEquals(expected.getWidth(), actual.getWidth());
+        assertEquals(expected.getHeight(), actual.getHeight());
+        int different = 0;
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                if ((expected.getRGB(x, y) & 0xFFFFFF) != (actual.getRGB(x, y) & 0xFFFFFF)) {
+                    different++;
+                }
+            }
+        }
+        return different;
+    }
+}